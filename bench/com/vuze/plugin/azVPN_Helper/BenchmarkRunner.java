@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimal benchmark harness for the plugin's hot paths.  Not part of the
+ * plugin jar (bench/ is a separate source folder).
+ * <p/>
+ * Build and run against a BiglyBT jar:
+ * <pre>
+ * javac -cp BiglyBT.jar:lib/* -d bin-bench $(find src bench -name "*.java")
+ * java -cp bin-bench:BiglyBT.jar:lib/* com.vuze.plugin.azVPN_Helper.BenchmarkRunner [filter]
+ * </pre>
+ * Each benchmark is warmed up, then run for a fixed time.  Reports ops/s,
+ * median and 99th percentile time per op, and bytes allocated per op by the
+ * calling thread.
+ */
+public class BenchmarkRunner
+{
+	public interface Benchmark
+	{
+		/**
+		 * @return Anything derived from the work, so it can't be optimized away
+		 */
+		Object run()
+				throws Exception;
+	}
+
+	private static final long DEFAULT_WARMUP_MS = 2000;
+
+	private static final long DEFAULT_MEASURE_MS = 5000;
+
+	/** Per-op times kept for percentiles; later ops overwrite the oldest */
+	private static final int MAX_SAMPLES = 1 << 18;
+
+	/** Results are folded in here so the JIT can't drop the work */
+	public static volatile int sink;
+
+	private final long warmupMS;
+
+	private final long measureMS;
+
+	private final String filter;
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	public BenchmarkRunner(long warmupMS, long measureMS, String filter) {
+		this.warmupMS = warmupMS;
+		this.measureMS = measureMS;
+		this.filter = filter;
+	}
+
+	public static void main(String[] args)
+			throws Exception {
+		String filter = args.length > 0 ? args[0] : null;
+		BenchmarkRunner runner = new BenchmarkRunner(
+				Long.getLong("bench.warmup", DEFAULT_WARMUP_MS),
+				Long.getLong("bench.measure", DEFAULT_MEASURE_MS), filter);
+
+		// Keep plugin logging off stdout, but still pay for queueing it
+		PluginVPNHelper.startAsyncLog((time, s) -> {
+		});
+		try {
+			System.out.println(String.format(Locale.US, "%-40s %14s %12s %12s %12s",
+					"Benchmark", "ops/s", "p50 us", "p99 us", "B/op"));
+			BindingDecisionBench.register(runner);
+			ParserBench.register(runner);
+		} finally {
+			PluginVPNHelper.stopAsyncLog();
+		}
+	}
+
+	public void run(String name, Benchmark benchmark)
+			throws Exception {
+		if (filter != null && !name.contains(filter)) {
+			return;
+		}
+
+		long[] samples = new long[MAX_SAMPLES];
+		loop(benchmark, warmupMS, samples);
+
+		long allocatedBefore = getAllocatedBytes();
+		long start = System.nanoTime();
+		long ops = loop(benchmark, measureMS, samples);
+		long elapsedNS = System.nanoTime() - start;
+		long allocatedAfter = getAllocatedBytes();
+
+		long[] sorted = Arrays.copyOf(samples, (int) Math.min(ops, MAX_SAMPLES));
+		Arrays.sort(sorted);
+
+		double opsPerSec = ops * 1e9 / elapsedNS;
+		String bytesPerOp = allocatedBefore < 0 ? "n/a"
+				: Long.toString((allocatedAfter - allocatedBefore) / Math.max(1, ops));
+		System.out.println(String.format(Locale.US,
+				"%-40s %14.1f %12.2f %12.2f %12s", name, opsPerSec,
+				percentile(sorted, 0.50) / 1000.0, percentile(sorted, 0.99) / 1000.0,
+				bytesPerOp));
+	}
+
+	/**
+	 * Time every op.  The nanoTime calls add a few tens of ns per op, which
+	 * is noise for the benchmarks here but does lower ops/s on the fastest.
+	 */
+	private static long loop(Benchmark benchmark, long ms, long[] samples)
+			throws Exception {
+		long ops = 0;
+		long end = System.nanoTime() + ms * 1000000L;
+		int acc = 0;
+		long now = System.nanoTime();
+		do {
+			Object o = benchmark.run();
+			acc += o == null ? 0 : o.hashCode();
+			long after = System.nanoTime();
+			samples[(int) (ops % samples.length)] = after - now;
+			now = after;
+			ops++;
+		} while (now < end);
+		sink += acc;
+		return ops;
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+	}
+
+	/**
+	 * @return bytes allocated by this thread so far, or -1 if the JVM can't say
+	 */
+	private long getAllocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+			if (bean.isThreadAllocatedMemorySupported()
+					&& bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+
+import com.biglybt.pif.PluginConfig;
+
+/**
+ * Binding decision over a simulated network of 1 to 500 interfaces, plus the
+ * address matcher and a real interface scan.
+ */
+public class BindingDecisionBench
+{
+	private static final int[] INTERFACE_COUNTS = {
+		1,
+		10,
+		100,
+		500
+	};
+
+	private static final String VPN_REGEX = "10\\.[0-9]+\\.[0-9]+\\.[0-9]+";
+
+	public static void register(BenchmarkRunner runner)
+			throws Exception {
+		for (int count : INTERFACE_COUNTS) {
+			final NetworkSnapshot snapshot = buildSnapshot(count);
+			final InetAddress[] vpnAddresses = findAddresses(snapshot, true);
+			final BenchChecker checker = new BenchChecker(snapshot,
+					vpnAddresses[0]);
+			final InetAddress currentBind = vpnAddresses[vpnAddresses.length - 1];
+
+			runner.run("decideBinding/" + count, () -> checker.decideBinding(
+					currentBind, new StatusReport(null)).statusID);
+		}
+
+		final VPNAddressMatcher matcher = new VPNAddressMatcher("eth1;10.9.0.0/16",
+				VPN_REGEX, "100.64.0.0/10");
+		final InetAddress[] allAddresses = findAddresses(buildSnapshot(500),
+				false);
+		runner.run("matchesVPN/" + allAddresses.length, () -> {
+			int matched = 0;
+			for (InetAddress address : allAddresses) {
+				if (!matcher.isExcludedAddress(address)
+						&& matcher.matchesVPN(address)) {
+					matched++;
+				}
+			}
+			return matched;
+		});
+
+		runner.run("snapshotCapture/host", () -> {
+			NetworkSnapshot.invalidate();
+			return NetworkSnapshot.get().getInterfaces().size();
+		});
+	}
+
+	/**
+	 * Every 5th interface is a VPN tunnel with a 10.x address; the rest look
+	 * like LAN adapters.  All have an IPv6 link local address too.
+	 */
+	static NetworkSnapshot buildSnapshot(int count)
+			throws UnknownHostException {
+		List<NetworkSnapshot.InterfaceInfo> interfaces = new ArrayList<>(count);
+		List<InetAddress> bindable = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			boolean vpn = i % 5 == 0;
+			int hi = (i >> 8) & 0xff;
+			int lo = i & 0xff;
+			InetAddress v4 = InetAddress.getByAddress(vpn ? new byte[] {
+				10,
+				(byte) hi,
+				(byte) lo,
+				(byte) (2 + (i % 3))
+			} : new byte[] {
+				(byte) 192,
+				(byte) 168,
+				(byte) lo,
+				(byte) (10 + hi)
+			});
+			InetAddress v6 = InetAddress.getByName(
+					"fe80::" + Integer.toHexString(i + 1));
+			String name = vpn ? "tun" + i : "eth" + i;
+			String displayName = vpn
+					? (i % 10 == 0 ? "TAP-Windows Adapter V9" : "Example VPN Adapter")
+					: "Ethernet Controller " + i;
+			interfaces.add(new NetworkSnapshot.InterfaceInfo(name, displayName,
+					new InetAddress[] {
+						v6,
+						v4
+					}, new int[] {
+						64,
+						vpn ? (i % 2 == 0 ? 32 : 24) : 24
+					}));
+			bindable.add(v4);
+		}
+		return new NetworkSnapshot(interfaces, bindable.toArray(new InetAddress[0]));
+	}
+
+	private static InetAddress[] findAddresses(NetworkSnapshot snapshot,
+			boolean vpnOnly) {
+		List<InetAddress> list = new ArrayList<>();
+		for (NetworkSnapshot.InterfaceInfo info : snapshot.getInterfaces()) {
+			for (NetworkSnapshot.AddressInfo addressInfo : info.addresses) {
+				if (!vpnOnly || addressInfo.address.getAddress()[0] == 10) {
+					list.add(addressInfo.address);
+				}
+			}
+		}
+		return list.toArray(new InetAddress[0]);
+	}
+
+	/**
+	 * Checker that sees only the simulated network and never touches the
+	 * real one
+	 */
+	private static class BenchChecker
+		extends CheckerCommon
+	{
+		private final NetworkSnapshot snapshot;
+
+		private final InetAddress routeAddress;
+
+		BenchChecker(NetworkSnapshot snapshot, InetAddress routeAddress) {
+			this.snapshot = snapshot;
+			this.routeAddress = routeAddress;
+			config = createConfig();
+			setMinSubnetMaskBitCount(24);
+		}
+
+		@Override
+		protected NetworkSnapshot captureNetworkSnapshot() {
+			return snapshot;
+		}
+
+		@Override
+		protected InetAddress getDefaultRouteAddress() {
+			return routeAddress;
+		}
+
+		@Override
+		protected boolean canReach(InetAddress addressToReach) {
+			// deterministic mix of reachable and unreachable tunnels
+			return (addressToReach.getAddress()[3] & 1) == 0;
+		}
+
+		@Override
+		protected Status callRPCforPort(InetAddress vpnIP, StatusReport sReply) {
+			return null;
+		}
+	}
+
+	private static PluginConfig createConfig() {
+		final Map<String, String> values = new HashMap<>();
+		values.put(PluginConstants.CONFIG_VPN_IP_MATCHING, VPN_REGEX);
+		return (PluginConfig) Proxy.newProxyInstance(
+				PluginConfig.class.getClassLoader(), new Class<?>[] {
+					PluginConfig.class
+				}, (proxy, method, args) -> {
+					Class<?> type = method.getReturnType();
+					if (type == String.class) {
+						String value = args == null ? null : values.get(args[0]);
+						if (value == null && args != null && args.length > 1) {
+							value = (String) args[1];
+						}
+						return value == null ? "" : value;
+					}
+					if (type == boolean.class) {
+						return false;
+					}
+					if (type == int.class) {
+						return 0;
+					}
+					return null;
+				});
+	}
+}
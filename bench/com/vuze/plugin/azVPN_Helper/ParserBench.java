@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.biglybt.core.util.FileUtil;
+import com.biglybt.util.JSONUtils;
+
+/**
+ * The provider file parsers, run over generated files sized like the larger
+ * ones seen in the wild.  Each benchmark reads the file from disk, as the
+ * checkers do, except for the "parse" variants which start from a String.
+ */
+public class ParserBench
+{
+	private static final int DAEMON_LOG_SIZE = 2 * 1024 * 1024;
+
+	private static final int REGION_COUNT = 120;
+
+	private static final int AIRVPN_OPTION_COUNT = 500;
+
+	private static final int MULLVAD_SETTINGS_LINES = 2000;
+
+	public static void register(BenchmarkRunner runner)
+			throws Exception {
+		File dir = createTempDir();
+
+		final File logWithPort = writeFile(dir, "daemon.log",
+				buildDaemonLog("{\"single\":51234}"));
+		final File logNoPort = writeFile(dir, "daemon-noport.log",
+				buildDaemonLog("{\"single\":null}"));
+		final File settings = writeFile(dir, "settings.json", buildSettingsJSON());
+		final File account = writeFile(dir, "account.json", buildAccountJSON());
+		final File statusFile = writeFile(dir, "status_file.txt",
+				buildStatusFile());
+		final File airVPN = writeFile(dir, "AirVPN.xml", buildAirVPNXML());
+		final File mullvad = writeFile(dir, "settings.ini",
+				buildMullvadSettings());
+
+		runner.run("pia/daemonLog/port",
+				() -> portOf(Checker_PIA.parseLogTail(Checker_PIA.readLogTail(
+						logWithPort))));
+		runner.run("pia/daemonLog/region",
+				() -> portOf(Checker_PIA.parseLogTail(Checker_PIA.readLogTail(
+						logNoPort))));
+		final String tail = Checker_PIA.readLogTail(logNoPort);
+		runner.run("pia/daemonLog/region/parse",
+				() -> portOf(Checker_PIA.parseLogTail(tail)));
+
+		// what a check costs now, when the log hasn't grown since the last one
+		final LogTailer tailer = new LogTailer(logWithPort, 1024 * 128,
+				"|status| Received status {", "Forwarded port updated to ");
+		tailer.update();
+		runner.run("pia/daemonLog/tailer/unchanged", () -> tailer.update());
+
+		runner.run("pia/settingsJson", () -> Checker_PIA.parsePortForwardEnabled(
+				FileUtil.readFileAsString(settings, -1)));
+		final String settingsText = FileUtil.readFileAsString(settings, -1);
+		runner.run("pia/settingsJson/parse",
+				() -> Checker_PIA.parsePortForwardEnabled(settingsText));
+
+		runner.run("pia/accountJson", () -> Checker_PIA.parseAccountString(
+				FileUtil.readFileAsString(account, -1), "clientId", null));
+
+		runner.run("pia/statusFile", () -> {
+			String json = Checker_PIA.extractStatusFileJSON(
+					FileUtil.readFileAsByteArray(statusFile));
+			return json == null ? null : JSONUtils.decodeJSON(json);
+		});
+
+		runner.run("airvpn/options",
+				() -> AirVPNOptions.parse(airVPN).get("login"));
+		runner.run("airvpn/options/cached",
+				() -> AirVPNOptions.read(airVPN).getLogin());
+
+		runner.run("mullvad/settingsIni", () -> Checker_Mullvad.parseAccountID(
+				FileUtil.readFileAsString(mullvad, 65535)));
+		final String mullvadText = FileUtil.readFileAsString(mullvad, 65535);
+		runner.run("mullvad/settingsIni/parse",
+				() -> Checker_Mullvad.parseAccountID(mullvadText));
+	}
+
+	private static Object portOf(Checker_PIA.LogPortInfo info) {
+		return info == null ? null : info.port;
+	}
+
+	/**
+	 * Debug chatter with a status line every few hundred lines; the last
+	 * status line is near, but not at, the end.
+	 */
+	static String buildDaemonLog(String forwardedPort) {
+		String status = "[2026-10-18 10:00:00.000][0d3f][daemon.status][daemon.cpp:512][debug] |status| Received status "
+				+ buildStatusJSON(forwardedPort);
+		StringBuilder sb = new StringBuilder(DAEMON_LOG_SIZE + 64 * 1024);
+		int line = 0;
+		while (sb.length() < DAEMON_LOG_SIZE - 8192) {
+			if (line % 400 == 399) {
+				sb.append(status).append("\r\n");
+			} else {
+				appendDebugLine(sb, line);
+			}
+			line++;
+		}
+		sb.append(status).append("\r\n");
+		while (sb.length() < DAEMON_LOG_SIZE) {
+			appendDebugLine(sb, line++);
+		}
+		return sb.toString();
+	}
+
+	private static void appendDebugLine(StringBuilder sb, int line) {
+		sb.append(String.format(Locale.US,
+				"[2026-10-18 10:%02d:%02d.%03d][0d3f][daemon.connection][connection.cpp:%d][debug] Ping %d: latency %d ms, bytes in %d out %d\r\n",
+				(line / 3600) % 60, (line / 60) % 60, line % 1000, 100 + line % 900,
+				line, line % 250, line * 1412L, line * 96L));
+	}
+
+	private static String buildStatusJSON(String forwardedPort) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"connectionState\":\"Connected\",\"forwarded_port\":").append(
+				forwardedPort).append(",\"region\":{\"single\":\"region_").append(
+						REGION_COUNT - 3).append("\"},\"regions\":[");
+		for (int i = 0; i < REGION_COUNT; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"region_code\":\"region_").append(i).append(
+					"\",\"region_name\":\"Region ").append(i).append(
+							"\",\"supports_port_forwarding\":").append(i % 3 != 0).append(
+									",\"dns\":\"dns").append(i).append(
+											".example.com\",\"ping\":").append(20 + i).append('}');
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+
+	private static String buildSettingsJSON() {
+		StringBuilder sb = new StringBuilder("{\n");
+		for (int i = 0; i < 400; i++) {
+			sb.append("  \"option").append(i).append("\": \"").append(
+					"value value value ").append(i).append("\",\n");
+		}
+		sb.append("  \"favoriteLocations\": [");
+		for (int i = 0; i < 200; i++) {
+			sb.append(i == 0 ? "" : ", ").append("\"region_").append(i).append('"');
+		}
+		sb.append("],\n  \"user\": \"p1234567\",\n  \"portForward\": true\n}\n");
+		return sb.toString();
+	}
+
+	private static String buildAccountJSON() {
+		StringBuilder sb = new StringBuilder("{\n");
+		sb.append("  \"openvpnPassword\": \"");
+		for (int i = 0; i < 2048; i++) {
+			sb.append((char) ('a' + i % 26));
+		}
+		sb.append("\",\n  \"plan\": \"yearly\",\n  \"username\": \"p1234567\",\n");
+		sb.append("  \"clientId\": \"0123456789abcdef0123\"\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Binary-ish junk with the port JSON at byte 70000
+	 */
+	private static byte[] buildStatusFile() {
+		byte[] json = "{\"single\":51234}".getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = new byte[70000 + json.length + 1024];
+		for (int i = 0; i < 70000; i++) {
+			bytes[i] = (byte) (32 + i % 90);
+		}
+		System.arraycopy(json, 0, bytes, 70000, json.length);
+		return bytes;
+	}
+
+	private static String buildAirVPNXML() {
+		StringBuilder sb = new StringBuilder(
+				"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<eddie>\n\t<options>\n");
+		for (int i = 0; i < AIRVPN_OPTION_COUNT; i++) {
+			String name = i == AIRVPN_OPTION_COUNT - 10 ? "login"
+					: i == AIRVPN_OPTION_COUNT - 9 ? "password" : "option." + i;
+			sb.append("\t\t<option name=\"").append(name).append("\" value=\"value ").append(
+					i).append("\" />\n");
+		}
+		sb.append("\t</options>\n\t<providers>\n");
+		for (int i = 0; i < 50; i++) {
+			sb.append("\t\t<provider code=\"p").append(i).append("\" />\n");
+		}
+		sb.append("\t</providers>\n</eddie>\n");
+		return sb.toString();
+	}
+
+	private static String buildMullvadSettings() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < MULLVAD_SETTINGS_LINES; i++) {
+			if (i % 50 == 0) {
+				sb.append("[section").append(i / 50).append("]\n");
+			} else if (i == MULLVAD_SETTINGS_LINES - 20) {
+				sb.append("id = 1234567890123456\n");
+			} else {
+				sb.append("key").append(i).append(" = value").append(i).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static File createTempDir()
+			throws IOException {
+		File dir = File.createTempFile("vpnhelper-bench", "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Can't create " + dir);
+		}
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static File writeFile(File dir, String name, String content)
+			throws IOException {
+		return writeFile(dir, name, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static File writeFile(File dir, String name, byte[] content)
+			throws IOException {
+		File file = new File(dir, name);
+		file.deleteOnExit();
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(content);
+		} finally {
+			fos.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.biglybt.core.xml.simpleparser.SimpleXMLParserDocumentFactory;
+
+import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocument;
+import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocumentAttribute;
+import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocumentNode;
+
+/**
+ * The &lt;options&gt; of an Eddie (AirVPN client) AirVPN.xml.
+ * <p/>
+ * {@link #read(File)} keeps the last parse of each file and only parses
+ * again when the file's size or modification time changes.
+ */
+public class AirVPNOptions
+{
+	public static final AirVPNOptions EMPTY = new AirVPNOptions(
+			Collections.<String, String> emptyMap(), -1, -1);
+
+	private static final Map<String, AirVPNOptions> cache = new HashMap<>();
+
+	private final Map<String, String> options;
+
+	private final long size;
+
+	private final long lastModified;
+
+	private AirVPNOptions(Map<String, String> options, long size,
+			long lastModified) {
+		this.options = options;
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @return Options of file, or {@link #EMPTY} if it isn't a readable file
+	 */
+	public static AirVPNOptions read(File file)
+			throws Exception {
+		if (!file.isFile() || !file.canRead()) {
+			return EMPTY;
+		}
+		String path = file.getAbsolutePath();
+		long size = file.length();
+		long lastModified = file.lastModified();
+		synchronized (cache) {
+			AirVPNOptions cached = cache.get(path);
+			if (cached != null && cached.size == size
+					&& cached.lastModified == lastModified) {
+				return cached;
+			}
+		}
+		AirVPNOptions options = new AirVPNOptions(parse(file), size,
+				lastModified);
+		synchronized (cache) {
+			cache.put(path, options);
+		}
+		return options;
+	}
+
+	/**
+	 * Parse the name/value pairs under &lt;options&gt;, without caching
+	 */
+	static Map<String, String> parse(File file)
+			throws Exception {
+		SimpleXMLParserDocument xml = SimpleXMLParserDocumentFactory.create(file);
+		SimpleXMLParserDocumentNode options = xml.getChild("options");
+		SimpleXMLParserDocumentNode[] children = options.getChildren();
+
+		Map<String, String> mapOptions = new HashMap<String, String>();
+
+		for (SimpleXMLParserDocumentNode child : children) {
+			SimpleXMLParserDocumentAttribute name = child.getAttribute("name");
+			if (name != null) {
+				SimpleXMLParserDocumentAttribute value = child.getAttribute("value");
+				if (value != null) {
+					mapOptions.put(name.getValue(), value.getValue());
+				}
+			}
+		}
+		return mapOptions;
+	}
+
+	public String getLogin() {
+		return getString("login", "");
+	}
+
+	public String getPassword() {
+		return getString("password", "");
+	}
+
+	/**
+	 * @return Whether Eddie remembers the login
+	 */
+	public boolean isRemember() {
+		return getBoolean("remember", false);
+	}
+
+	/**
+	 * @return "udp", "tcp", etc, or "" if not set
+	 */
+	public String getProtocol() {
+		return getString("mode.protocol", "");
+	}
+
+	/**
+	 * @return VPN server port, or 0 if not set
+	 */
+	public int getPort() {
+		return getInt("mode.port", 0);
+	}
+
+	public String getString(String name, String def) {
+		String value = options.get(name);
+		return value == null ? def : value;
+	}
+
+	public boolean getBoolean(String name, boolean def) {
+		String value = options.get(name);
+		return value == null ? def : Boolean.parseBoolean(value.trim());
+	}
+
+	public int getInt(String name, int def) {
+		String value = options.get(name);
+		if (value == null) {
+			return def;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return def;
+		}
+	}
+
+	public boolean isEmpty() {
+		return options.isEmpty();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Hands log lines to a background writer thread through a bounded,
+ * lock-free ring buffer, so logging never blocks the caller.
+ * <p/>
+ * Any number of threads may log.  Each slot has a sequence number telling
+ * producers and the single consumer whose turn it is.  When the buffer is
+ * full, the line is dropped and counted; the writer reports the count.
+ * <p/>
+ * Messages may be a {@link Supplier}, which is only called on the writer
+ * thread.
+ */
+public class AsyncLog
+{
+	public interface Sink
+	{
+		/**
+		 * @param time System.currentTimeMillis() when the line was logged
+		 */
+		void write(long time, String s);
+	}
+
+	private final int mask;
+
+	private final Object[] messages;
+
+	private final long[] times;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	/** Only touched by the writer thread */
+	private long head;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private long droppedReported;
+
+	private final Sink sink;
+
+	private final Thread writer;
+
+	private volatile boolean writerIdle;
+
+	private volatile boolean stopping;
+
+	/**
+	 * @param capacity rounded up to a power of 2
+	 */
+	public AsyncLog(int capacity, Sink sink) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mask = size - 1;
+		messages = new Object[size];
+		times = new long[size];
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		this.sink = sink;
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "VPNHelper Log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @param message String or Supplier&lt;String&gt;
+	 * @return false if the buffer was full and the line was dropped
+	 */
+	public boolean log(Object message) {
+		long time = System.currentTimeMillis();
+		long pos;
+		while (true) {
+			pos = tail.get();
+			int index = (int) (pos & mask);
+			long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					messages[index] = message;
+					times[index] = time;
+					// publishes the slot to the writer
+					sequences.set(index, pos + 1);
+					break;
+				}
+			} else if (diff < 0) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			// else another producer took the slot; retry with the new tail
+		}
+		if (writerIdle) {
+			LockSupport.unpark(writer);
+		}
+		return true;
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Write what's queued, then stop the writer thread
+	 */
+	public void stop(long waitMS) {
+		stopping = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(waitMS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain() {
+		while (true) {
+			int index = (int) (head & mask);
+			if (sequences.get(index) != head + 1) {
+				reportDrops();
+				if (stopping) {
+					return;
+				}
+				writerIdle = true;
+				// recheck, in case a producer published before seeing writerIdle.
+				// Both are volatile, so either we see its line here or it sees
+				// writerIdle and unparks us; no timed wakeups needed.
+				if (sequences.get(index) != head + 1 && !stopping) {
+					LockSupport.park(this);
+				}
+				writerIdle = false;
+				continue;
+			}
+
+			Object message = messages[index];
+			long time = times[index];
+			messages[index] = null;
+			// hand the slot back to producers, one lap ahead
+			sequences.set(index, head + mask + 1);
+			head++;
+
+			write(time, message);
+		}
+	}
+
+	private void write(long time, Object message) {
+		try {
+			String s;
+			if (message instanceof Supplier) {
+				Object o = ((Supplier<?>) message).get();
+				s = o == null ? null : o.toString();
+			} else {
+				s = message == null ? null : message.toString();
+			}
+			if (s != null) {
+				sink.write(time, s);
+			}
+		} catch (Throwable t) {
+			t.printStackTrace();
+		}
+	}
+
+	private void reportDrops() {
+		long count = dropped.get();
+		if (count != droppedReported) {
+			write(System.currentTimeMillis(),
+					(count - droppedReported) + " log lines dropped");
+			droppedReported = count;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import org.apache.http.conn.DnsResolver;
+
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Remembers lookups of the few hosts the checkers talk to (provider APIs,
+ * reach test sites, the port location host), so registering a proxy bypass
+ * and then connecting costs one lookup, not two.
+ * <p/>
+ * Entries live for the JVM's <code>networkaddress.cache.ttl</code>.  A host
+ * used in the last part of its TTL is looked up again in the background, so
+ * regular callers rarely wait.  Failures are remembered for
+ * <code>networkaddress.cache.negative.ttl</code>.
+ */
+public class CachingDnsResolver
+	implements DnsResolver
+{
+	private static final long DEFAULT_TTL_MS = 60 * 1000L;
+
+	private static final long DEFAULT_NEGATIVE_TTL_MS = 10 * 1000L;
+
+	/** Refresh once this fraction of the TTL is left */
+	private static final int PREFETCH_DIVISOR = 5;
+
+	private static final CachingDnsResolver instance = new CachingDnsResolver(
+			getTTLProperty("networkaddress.cache.ttl", DEFAULT_TTL_MS),
+			getTTLProperty("networkaddress.cache.negative.ttl",
+					DEFAULT_NEGATIVE_TTL_MS));
+
+	private final long ttlMS;
+
+	private final long negativeTTLMS;
+
+	private final Map<String, Entry> cache = new HashMap<>();
+
+	private ExecutorService prefetchPool;
+
+	public static CachingDnsResolver get() {
+		return instance;
+	}
+
+	public CachingDnsResolver(long ttlMS, long negativeTTLMS) {
+		this.ttlMS = ttlMS;
+		this.negativeTTLMS = negativeTTLMS;
+	}
+
+	@Override
+	public InetAddress[] resolve(String host)
+			throws UnknownHostException {
+		String key = host.toLowerCase();
+		long now = SystemTime.getMonotonousTime();
+		Entry entry;
+		synchronized (this) {
+			entry = cache.get(key);
+			if (entry != null && now < entry.expiresOn) {
+				if (entry.addresses != null && !entry.refreshing
+						&& entry.expiresOn - now < ttlMS / PREFETCH_DIVISOR) {
+					entry.refreshing = true;
+					prefetch(key);
+				}
+			} else {
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			entry = lookup(key);
+		}
+		if (entry.addresses == null) {
+			throw new UnknownHostException(host);
+		}
+		return entry.addresses.clone();
+	}
+
+	public synchronized void invalidate() {
+		cache.clear();
+	}
+
+	private Entry lookup(String key) {
+		Entry entry;
+		try {
+			entry = new Entry(InetAddress.getAllByName(key),
+					SystemTime.getMonotonousTime() + ttlMS);
+		} catch (UnknownHostException e) {
+			entry = new Entry(null, SystemTime.getMonotonousTime() + negativeTTLMS);
+		}
+		synchronized (this) {
+			cache.put(key, entry);
+		}
+		return entry;
+	}
+
+	private void prefetch(final String key) {
+		try {
+			getPrefetchPool().execute(new Runnable() {
+				@Override
+				public void run() {
+					lookup(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// let the next caller look it up
+		}
+	}
+
+	private synchronized ExecutorService getPrefetchPool() {
+		if (prefetchPool == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 30,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "VPNHelper DNS Prefetch");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			pool.allowCoreThreadTimeOut(true);
+			prefetchPool = pool;
+		}
+		return prefetchPool;
+	}
+
+	/**
+	 * @return ms.  Negative values (cache forever) are capped at the default
+	 */
+	private static long getTTLProperty(String name, long def) {
+		try {
+			String value = Security.getProperty(name);
+			if (value != null) {
+				long secs = Long.parseLong(value.trim());
+				return secs < 0 ? def : secs * 1000;
+			}
+		} catch (Throwable ignore) {
+		}
+		return def;
+	}
+
+	private static class Entry
+	{
+		/** null if the lookup failed */
+		final InetAddress[] addresses;
+
+		final long expiresOn;
+
+		boolean refreshing;
+
+		Entry(InetAddress[] addresses, long expiresOn) {
+			this.addresses = addresses;
+			this.expiresOn = expiresOn;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Where port binding checks spend their time.  Shared by all checkers, so
+ * history survives switching VPN.
+ * <p/>
+ * Each phase is published as an MBean named
+ * <code>com.vuze.plugin.azVPN_Helper:type=CheckMetrics,phase=&lt;name&gt;</code>
+ */
+public class CheckMetrics
+{
+	public enum Phase {
+		/** Whole check, start to notify */
+		CHECK("check"),
+		/** Check answered with the last result, as nothing had changed */
+		CHECK_REUSED("checkReused"),
+		/** Deciding the bind address, including the reach probes */
+		FIND_BINDING("findBinding"),
+		/** Reach probes of the candidate addresses */
+		REACH("reach"),
+		/** Waiting for the core to apply a new bind address */
+		REBIND_WAIT("rebindWait"),
+		/** Reading the port from the configured location */
+		PORT_LOCATION("portLocation"),
+		/** VPN provider's port lookup */
+		RPC("rpc"),
+		/** Writing queued ports and bind address to the core config */
+		CORE_CONFIG_WRITE("coreConfigWrite");
+
+		public final String name;
+
+		Phase(String name) {
+			this.name = name;
+		}
+	}
+
+	private static final String OBJECT_NAME_PREFIX = "com.vuze.plugin.azVPN_Helper:type=CheckMetrics,phase=";
+
+	private static final CheckMetrics instance = new CheckMetrics();
+
+	private final CheckPhaseMetrics[] phases;
+
+	private boolean registered;
+
+	public static CheckMetrics get() {
+		return instance;
+	}
+
+	private CheckMetrics() {
+		Phase[] values = Phase.values();
+		phases = new CheckPhaseMetrics[values.length];
+		for (int i = 0; i < values.length; i++) {
+			phases[i] = new CheckPhaseMetrics(values[i].name);
+		}
+	}
+
+	/**
+	 * @param startNanos System.nanoTime() when the phase started
+	 */
+	public void record(Phase phase, long startNanos, boolean ok) {
+		phases[phase.ordinal()].record(System.nanoTime() - startNanos, ok);
+	}
+
+	public CheckPhaseMetrics getPhase(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	/**
+	 * @return Last duration of each phase that has run, with p99 and failures
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		for (CheckPhaseMetrics metrics : phases) {
+			if (metrics.getCount() == 0) {
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(String.format(Locale.US, "%s %.0fms (p99 %.0fms",
+					metrics.getName(), metrics.getLastMillis(),
+					metrics.getP99Millis()));
+			long failures = metrics.getFailures();
+			if (failures > 0) {
+				sb.append(", ").append(failures).append(" failed");
+			}
+			sb.append(')');
+		}
+		return sb.toString();
+	}
+
+	public synchronized void registerMBeans() {
+		if (registered) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (CheckPhaseMetrics metrics : phases) {
+			try {
+				ObjectName name = new ObjectName(
+						OBJECT_NAME_PREFIX + metrics.getName());
+				if (!server.isRegistered(name)) {
+					server.registerMBean(metrics, name);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		registered = true;
+	}
+
+	public synchronized void unregisterMBeans() {
+		if (!registered) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (CheckPhaseMetrics metrics : phases) {
+			try {
+				ObjectName name = new ObjectName(
+						OBJECT_NAME_PREFIX + metrics.getName());
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		registered = false;
+	}
+}
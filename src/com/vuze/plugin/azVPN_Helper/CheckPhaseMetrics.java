@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.Arrays;
+
+/**
+ * Timings of one phase of a check.  Keeps the last {@link #MAX_SAMPLES}
+ * durations for percentiles.
+ */
+public class CheckPhaseMetrics
+	implements CheckPhaseMetricsMBean
+{
+	private static final int MAX_SAMPLES = 256;
+
+	private final String name;
+
+	private final long[] samples = new long[MAX_SAMPLES];
+
+	private long count;
+
+	private long failures;
+
+	private long last = -1;
+
+	public CheckPhaseMetrics(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized void record(long durationNanos, boolean ok) {
+		samples[(int) (count % MAX_SAMPLES)] = durationNanos;
+		count++;
+		if (!ok) {
+			failures++;
+		}
+		last = durationNanos;
+	}
+
+	@Override
+	public synchronized double getLastMillis() {
+		return last < 0 ? -1 : last / 1e6;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return getPercentileMillis(0.50);
+	}
+
+	@Override
+	public double getP99Millis() {
+		return getPercentileMillis(0.99);
+	}
+
+	@Override
+	public synchronized long getCount() {
+		return count;
+	}
+
+	@Override
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	@Override
+	public synchronized void reset() {
+		count = 0;
+		failures = 0;
+		last = -1;
+	}
+
+	/**
+	 * @return -1 if there are no samples
+	 */
+	public double getPercentileMillis(double p) {
+		long[] sorted;
+		synchronized (this) {
+			if (count == 0) {
+				return -1;
+			}
+			sorted = Arrays.copyOf(samples, (int) Math.min(count, MAX_SAMPLES));
+		}
+		Arrays.sort(sorted);
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))]
+				/ 1e6;
+	}
+}
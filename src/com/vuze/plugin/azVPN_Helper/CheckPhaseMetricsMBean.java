@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+/**
+ * JMX view of one {@link CheckMetrics.Phase}.  Times are over the most recent
+ * samples; counts are since the plugin loaded (or the last reset).
+ */
+public interface CheckPhaseMetricsMBean
+{
+	double getLastMillis();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	long getCount();
+
+	long getFailures();
+
+	void reset();
+}
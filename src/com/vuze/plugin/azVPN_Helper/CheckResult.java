@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+/**
+ * Outcome of one {@link CheckerCommon#portBindingCheck()} run
+ */
+public class CheckResult
+{
+	private final CheckerCommon.Status status;
+
+	private final StatusReport report;
+
+	private final boolean reused;
+
+	private final long completedOn;
+
+	public CheckResult(CheckerCommon.Status status, StatusReport report,
+			boolean reused) {
+		this.status = status;
+		this.report = report;
+		this.reused = reused;
+		this.completedOn = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return null if the check failed before determining a status
+	 */
+	public CheckerCommon.Status getStatus() {
+		return status;
+	}
+
+	public StatusReport getReport() {
+		return report;
+	}
+
+	/**
+	 * @return true if the network was unchanged and the previous results were
+	 * reported again
+	 */
+	public boolean isReused() {
+		return reused;
+	}
+
+	public long getCompletedOn() {
+		return completedOn;
+	}
+}
@@ -18,23 +18,18 @@
 
 package com.vuze.plugin.azVPN_Helper;
 
-import java.io.File;
-import java.lang.reflect.Field;
 import java.net.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
 
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 
 import com.biglybt.core.Core;
 import com.biglybt.core.CoreFactory;
+import com.biglybt.core.config.COConfigurationManager;
+import com.biglybt.core.config.ParameterListener;
 import com.biglybt.core.networkmanager.admin.*;
 import com.biglybt.core.proxy.AEProxySelector;
 import com.biglybt.core.proxy.AEProxySelectorFactory;
@@ -64,6 +59,62 @@ public abstract class CheckerCommon
 
 	protected static final int STATUS_ID_WARN = 2;
 
+	/**
+	 * Maximum number of canReach probes running at the same time
+	 */
+	private static final int MAX_PROBE_THREADS = 8;
+
+	/**
+	 * Overall time limit for probing all candidate interfaces.  canReach has a
+	 * 12s connect timeout, and some checkers (PIA) probe twice per address.
+	 */
+	private static final long PROBE_DEADLINE_MS = 30000;
+
+	/**
+	 * About the default check interval, so a tunnel that stops passing
+	 * traffic (interface still up) is noticed by the next periodic check
+	 */
+	private static final long REACH_CACHE_POSITIVE_TTL = 2 * 60 * 1000L;
+
+	private static final long REACH_CACHE_NEGATIVE_TTL = 60 * 1000L;
+
+	/**
+	 * Network changes tend to come in bursts while a tunnel (re)connects.
+	 * Wait for things to settle before checking.
+	 */
+	private static final long EVENT_CHECK_DELAY_MS = 5000;
+
+	private static final long EVENT_CHECK_MAX_DELAY_MS = 30000;
+
+	/** A pushed port is applied this soon, unless another follows */
+	private static final long PORT_PUSH_SETTLE_MS = 50;
+
+	private static final long PORT_PUSH_SETTLE_MAX_MS = 500;
+
+	/** Port changes are written to the core this long after the last one */
+	private static final long CORE_CONFIG_SETTLE_MS = 250;
+
+	private static final long CORE_CONFIG_SETTLE_MAX_MS = 2000;
+
+	/** How long to wait for the core to confirm a bind change */
+	private static final long REBIND_TIMEOUT_MS = 11000;
+
+	private static final String CORE_CONFIG_BIND_IP = "Bind IP";
+
+	/**
+	 * When the network hasn't changed, a check that bound successfully (and
+	 * got a port, if port forwarding) is reused for this long.  After that,
+	 * or straight away if the last check didn't get that far, the next check
+	 * probes the binding and asks for the port again.
+	 */
+	private static final long RPC_LEASE_MS = 30 * 60 * 1000L;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final CheckMetrics metrics = CheckMetrics.get();
+
 	static {
 		System.setProperty("org.apache.commons.logging.Log",
 				"org.apache.commons.logging.impl.NoOpLog");
@@ -73,14 +124,49 @@ public abstract class CheckerCommon
 
 	public PluginInterface pi;
 	protected UTTimer timer;
-	protected String lastProtocolAddresses = "";
-	protected String lastPortCheckStatus = "";
-	protected boolean checkingPortBinding;
+	protected StatusReport lastProtocolAddresses = new StatusReport(null);
+	protected StatusReport lastPortCheckStatus = new StatusReport(null);
+	protected volatile boolean checkingPortBinding;
 	protected LocaleUtilities texts;
 	protected InetAddress testSocketAddress;
 	protected InetAddress vpnIP;
 	protected Status currentStatus = new Status(-1);
 	private int minSubnetMaskBitCount = -1;
+	private ExecutorService probePool;
+	protected final HttpClientRegistry httpClients = new HttpClientRegistry();
+
+	private final PortLocationReader portLocationReader = new PortLocationReader(
+			httpClients);
+	protected final ReachabilityCache reachCache = new ReachabilityCache(
+			REACH_CACHE_POSITIVE_TTL, REACH_CACHE_NEGATIVE_TTL);
+	private Set<String> lastCandidateAddresses = Collections.emptySet();
+	private volatile VPNAddressMatcher vpnMatcher;
+	protected ScheduledExecutorService scheduler;
+	private Debouncer eventCheckDebouncer;
+	private volatile PortSource portSource;
+	private Debouncer portPushDebouncer;
+	private CoreConfigTransaction coreConfig;
+	private Debouncer coreConfigDebouncer;
+	private NetworkAdminPropertyChangeListener networkAdminListener;
+	private ParameterListener coreConfigListener;
+	private long lastGoodFingerprint;
+	private Status lastBindingStatus;
+	private long rpcLeaseExpiresOn;
+	private volatile boolean forceFullCheck;
+	private long checkStartedOn;
+	private final ExecutorService checkExecutor = Executors.newSingleThreadExecutor(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "VPNHelper Check");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+	private CompletableFuture<CheckResult> pendingCheck;
+	/** Rebind started by this check; only touched on the check thread */
+	private CompletableFuture<Boolean> pendingRebind;
+	private volatile CheckResult lastCheckResult;
 
 	public CheckerCommon() {
 	}
@@ -100,13 +186,152 @@ public abstract class CheckerCommon
 		} catch (UnknownHostException e) {
 		}
 
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "VPNHelper Scheduler");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		eventCheckDebouncer = new Debouncer(scheduler, EVENT_CHECK_DELAY_MS,
+				EVENT_CHECK_MAX_DELAY_MS, new Runnable() {
+					@Override
+					public void run() {
+						portBindingCheck();
+					}
+				});
+
+		portPushDebouncer = new Debouncer(scheduler, PORT_PUSH_SETTLE_MS,
+				PORT_PUSH_SETTLE_MAX_MS, this::applyPushedPort);
+
+		coreConfig = new CoreConfigTransaction(config);
+		coreConfigDebouncer = new Debouncer(scheduler, CORE_CONFIG_SETTLE_MS,
+				CORE_CONFIG_SETTLE_MAX_MS, this::commitCoreConfig);
+
+		addChangeListeners();
+	}
+
+	/**
+	 * Listen for network and bind changes, so we don't have to wait for the
+	 * periodic timer to notice a tunnel went up or down
+	 */
+	private void addChangeListeners() {
+		networkAdminListener = new NetworkAdminPropertyChangeListener() {
+			@Override
+			public void propertyChanged(String property) {
+				if (property.equals(NetworkAdmin.PR_NETWORK_INTERFACES)) {
+					NetworkSnapshot.invalidate();
+					// VPN up/down usually changes the DNS servers too
+					CachingDnsResolver.get().invalidate();
+					onNetworkChange(property, true);
+				} else if (property.equals(NetworkAdmin.PR_DEFAULT_BIND_ADDRESS)) {
+					onNetworkChange(property, false);
+				}
+			}
+		};
+		NetworkAdmin.getSingleton().addPropertyChangeListener(networkAdminListener);
+
+		coreConfigListener = new ParameterListener() {
+			@Override
+			public void parameterChanged(String parameterName) {
+				onNetworkChange(parameterName, false);
+			}
+		};
+		COConfigurationManager.addParameterListener(CORE_CONFIG_BIND_IP,
+				coreConfigListener);
+	}
+
+	private void removeChangeListeners() {
+		if (networkAdminListener != null) {
+			NetworkAdmin.getSingleton().removePropertyChangeListener(
+					networkAdminListener);
+			networkAdminListener = null;
+		}
+		if (coreConfigListener != null) {
+			COConfigurationManager.removeParameterListener(CORE_CONFIG_BIND_IP,
+					coreConfigListener);
+			coreConfigListener = null;
+		}
+	}
+
+	/**
+	 * @param evenIfChecking Bind changes while checking are usually our own
+	 *          doing, and can be ignored.  Interface changes can not.
+	 */
+	private void onNetworkChange(String what, boolean evenIfChecking) {
+		if (!evenIfChecking && checkingPortBinding) {
+			return;
+		}
+		PluginVPNHelper.log(what + " changed, scheduling check");
+		eventCheckDebouncer.trigger();
 	}
 
 	public void destroy() {
+		removeChangeListeners();
+		if (eventCheckDebouncer != null) {
+			eventCheckDebouncer.cancel();
+		}
+		if (portPushDebouncer != null) {
+			portPushDebouncer.cancel();
+		}
+		if (coreConfigDebouncer != null) {
+			coreConfigDebouncer.cancel();
+			// don't lose a port change that was waiting to be written
+			commitCoreConfig();
+		}
+		PortSource source;
+		synchronized (this) {
+			source = portSource;
+			portSource = null;
+		}
+		if (source != null) {
+			source.stop();
+		}
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		checkExecutor.shutdownNow();
+		CompletableFuture<CheckResult> orphan;
+		synchronized (this) {
+			orphan = pendingCheck;
+			pendingCheck = null;
+		}
+		if (orphan != null) {
+			orphan.complete(lastCheckResult);
+		}
 		if (timer != null) {
 			timer.destroy();
 			timer = null;
 		}
+		synchronized (this) {
+			if (probePool != null) {
+				probePool.shutdownNow();
+				probePool = null;
+			}
+		}
+		httpClients.closeAll();
+	}
+
+	/**
+	 * Forget cached results so the next check asks the network again.
+	 * Used when the user explicitly asks for a check.
+	 */
+	public void invalidateCaches() {
+		reachCache.invalidate();
+		NetworkSnapshot.invalidate();
+		CachingDnsResolver.get().invalidate();
+		portLocationReader.invalidate();
+		forceFullCheck = true;
+	}
+
+	/**
+	 * Make the next check redo the port RPC/location lookup even if the
+	 * network hasn't changed
+	 */
+	protected void expireRPCLease() {
+		rpcLeaseExpiresOn = 0;
 	}
 
 	protected final void buildTimer() {
@@ -132,10 +357,11 @@ public abstract class CheckerCommon
 		});
 	}
 
-	public final String calcProtocolAddresses() {
+	public final StatusReport calcProtocolAddresses() {
 		long now = pi.getUtilities().getCurrentSystemTime();
-		StringBuilder sReply = new StringBuilder("Last Checked ").append(
-				pi.getUtilities().getFormatters().formatDate(now)).append("\n");
+		StatusReport sReply = new StatusReport(texts);
+		sReply.addLiteral(StatusReport.Severity.NONE, "Last Checked "
+				+ pi.getUtilities().getFormatters().formatDate(now));
 		// Stolen from NetworkAdminImpl.generateDiagnostics
 		// This takes some time (1s-ish), so it's better to do it on demand
 		try {
@@ -202,84 +428,122 @@ public abstract class CheckerCommon
 			});
 		}
 
-		lastProtocolAddresses = sReply.toString();
+		lastProtocolAddresses = sReply;
 
-		CheckerListener[] triggers = PluginVPNHelper.instance.getCheckerListeners();
-		for (CheckerListener l : triggers) {
-			try {
-				l.protocolAddressesStatusChanged(lastProtocolAddresses);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
+		PluginVPNHelper.instance.getEventBus().fireProtocolAddressesStatusChanged(
+				lastProtocolAddresses);
 		return lastProtocolAddresses;
 	}
 
+	/**
+	 * Rebuild the VPN address matcher on next use.  Call when any of the
+	 * parameters it is compiled from change.
+	 */
+	public void invalidateVPNMatcher() {
+		vpnMatcher = null;
+		forceFullCheck = true;
+	}
+
+	private VPNAddressMatcher getVPNMatcher() {
+		VPNAddressMatcher matcher = vpnMatcher;
+		if (matcher == null) {
+			matcher = new VPNAddressMatcher(
+					config.getPluginStringParameter(PluginConstants.CONFIG_IGNORE_ADDRESS),
+					config.getPluginStringParameter(PluginConstants.CONFIG_VPN_IP_MATCHING),
+					config.getPluginStringParameter(PluginConstants.CONFIG_VPN_IP_CIDR,
+							""));
+			vpnMatcher = matcher;
+		}
+		return matcher;
+	}
+
 	private final boolean matchesVPNIP(InetAddress address,
-			NetworkInterface networkInterface) {
+			NetworkSnapshot snapshot) {
 		if (address == null) {
 			return false;
 		}
 
-		String[] excludes = config.getPluginStringParameter(
-				PluginConstants.CONFIG_IGNORE_ADDRESS).split(";");
-		if (excludes != null && excludes.length > 0) {
-			String hostAddress = address.getHostAddress();
-			for (String exclude : excludes) {
-				if (hostAddress.equals(exclude)) {
-					PluginVPNHelper.log(exclude + " matched and excluded");
-					return false;
-				}
-			}
+		VPNAddressMatcher matcher = getVPNMatcher();
+
+		if (matcher.isExcludedAddress(address)) {
+			PluginVPNHelper.logVerbose(
+					() -> address.getHostAddress() + " matched and excluded");
+			return false;
 		}
 
-		String regex = config.getPluginStringParameter(
-				PluginConstants.CONFIG_VPN_IP_MATCHING);
-		boolean matches = Pattern.matches(regex, address.getHostAddress());
+		if (!matcher.matchesVPN(address)) {
+			return false;
+		}
 
-		if (matches && excludes != null && excludes.length > 0) {
-			if (networkInterface == null) {
-				try {
-					networkInterface = NetUtils.getByInetAddress(address);
-				} catch (SocketException e) {
-				}
-			}
-			if (networkInterface != null) {
-				String name = networkInterface.getName();
-				for (String exclude : excludes) {
-					if (exclude.equals(name)) {
-						PluginVPNHelper.log(exclude + " matched and excluded");
-						return false;
-					}
-				}
+		if (matcher.hasInterfaceExcludes()) {
+			NetworkSnapshot.AddressInfo info = snapshot.get(address);
+			if (info != null
+					&& matcher.isExcludedInterface(info.networkInterface.name)) {
+				PluginVPNHelper.logVerbose(
+						() -> info.networkInterface.name + " matched and excluded");
+				return false;
 			}
 		}
 
-		return matches;
+		return true;
+	}
+
+	/**
+	 * Network state a check works from.  Overridable so the binding decision
+	 * can be run against a fixed network.
+	 */
+	protected NetworkSnapshot captureNetworkSnapshot() {
+		return NetworkSnapshot.get();
 	}
 
 	protected final int handleFindBindingAddress(InetAddress currentBindIP,
-			StringBuilder sReply) {
-		return handleFindBindingAddress(currentBindIP, sReply, 0);
+			StatusReport sReply) {
+		long start = System.nanoTime();
+		BindingDecision decision = decideBinding(currentBindIP, sReply);
+		metrics.record(CheckMetrics.Phase.FIND_BINDING, start,
+				decision.address != null);
+
+		if (decision.existingBindGood) {
+			setVPNIP(currentBindIP);
+		}
+		if (decision.address == null) {
+			return STATUS_ID_BAD;
+		}
+		// Completed later; the port lookup runs while the core rebinds
+		pendingRebind = rebindNetworkInterface(decision.info, decision.address,
+				sReply);
+		return decision.statusID;
+	}
+
+	/**
+	 * Work out which address we should be bound to.  Only reads state; the
+	 * caller applies the decision.
+	 */
+	final BindingDecision decideBinding(InetAddress currentBindIP,
+			StatusReport sReply) {
+		return decideBinding(currentBindIP, sReply, 0);
 	}
 
-	private final int handleFindBindingAddress(InetAddress currentBindIP,
-			StringBuilder sReply, int numLoops) {
+	private final BindingDecision decideBinding(InetAddress currentBindIP,
+			StatusReport sReply, int numLoops) {
 		if (currentBindIP == null) {
 			addReply(sReply, CHAR_BAD, "!Bind IP null!", new String[] {
 				"" + currentBindIP
 			});
-			return STATUS_ID_BAD;
+			return new BindingDecision(STATUS_ID_BAD, null, null, false);
 		}
 
+		NetworkSnapshot snapshot = captureNetworkSnapshot();
+
 		int newStatusID = STATUS_ID_OK;
 
+		InetAddress knownVPNIP = vpnIP;
+		boolean isGoodExistingBind = false;
+
 		Map<String, BindableInterface> mapBindableInterfaces = new HashMap<String, BindableInterface>();
 
 		BindableInterface newBind = null;
 
-		String s;
-
 		// The "Any" field is equivalent to 0.0.0.0 in dotted-quad notation, which is unbound.
 		// "Loopback" is 127.0.0.1, which is bound when Vuze can't bind to
 		// user specified interface (ie. kill switched)
@@ -289,21 +553,13 @@ public abstract class CheckerCommon
 			addReply(sReply, CHAR_BAD, "vpnhelper.vuze.loopback");
 		} else {
 			// bound
-			boolean isGoodExistingBind = matchesVPNIP(currentBindIP, null);
+			isGoodExistingBind = matchesVPNIP(currentBindIP, snapshot);
 			if (isGoodExistingBind) {
-				String niName = "Unknown Interface";
-				try {
-					NetworkInterface networkInterface = NetUtils.getByInetAddress(
-							currentBindIP);
-					niName = networkInterface.getName() + " ("
-							+ networkInterface.getDisplayName() + ")";
-				} catch (Throwable e) {
-				}
 				addReply(sReply, CHAR_GOOD, "vpnhelper.bound.good", new String[] {
 					"" + currentBindIP,
-					niName
+					snapshot.getInterfaceLabel(currentBindIP, "Unknown Interface")
 				});
-				vpnIP = currentBindIP;
+				knownVPNIP = currentBindIP;
 			} else {
 				addReply(sReply, CHAR_BAD, "vpnhelper.bound.bad", new String[] {
 					"" + currentBindIP
@@ -313,20 +569,17 @@ public abstract class CheckerCommon
 
 		try {
 			boolean foundExistingVPNIP = false;
-			NetworkAdmin networkAdmin = NetworkAdmin.getSingleton();
 
 			// Find a bindable address that starts with 10.
-			InetAddress[] bindableAddresses = networkAdmin.getBindableAddresses();
-
-			for (InetAddress bindableAddress : bindableAddresses) {
-				if (matchesVPNIP(bindableAddress, null)) {
+			for (InetAddress bindableAddress : snapshot.getBindableAddresses()) {
+				if (matchesVPNIP(bindableAddress, snapshot)) {
 					String hostAddress = bindableAddress.getHostAddress();
 					BindableInterface bi = mapBindableInterfaces.get(hostAddress);
 					if (bi == null) {
 						bi = new BindableInterface(bindableAddress,
-								NetUtils.getByInetAddress(bindableAddress));
+								snapshot.get(bindableAddress));
 						mapBindableInterfaces.put(hostAddress, bi);
-						if (!foundExistingVPNIP && bindableAddress.equals(vpnIP)) {
+						if (!foundExistingVPNIP && bindableAddress.equals(knownVPNIP)) {
 							foundExistingVPNIP = true;
 						}
 					}
@@ -334,28 +587,17 @@ public abstract class CheckerCommon
 			}
 
 			// Find a Network Interface that has an address that starts with 10.
-			NetworkAdminNetworkInterface[] interfaces = networkAdmin.getInterfaces();
-
-			/* Test reverse *
-			for (int i = 0; i < interfaces.length / 2; i++) {
-				NetworkAdminNetworkInterface temp = interfaces[i];
-				interfaces[i] = interfaces[interfaces.length - i - 1];
-				interfaces[interfaces.length - i - 1] = temp;
-			}
-			/**/
-			for (NetworkAdminNetworkInterface networkAdminInterface : interfaces) {
-				NetworkAdminNetworkInterfaceAddress[] addresses = networkAdminInterface.getAddresses();
-				for (NetworkAdminNetworkInterfaceAddress a : addresses) {
-					InetAddress address = a.getAddress();
+			for (NetworkSnapshot.InterfaceInfo networkInterface : snapshot.getInterfaces()) {
+				for (NetworkSnapshot.AddressInfo info : networkInterface.addresses) {
+					InetAddress address = info.address;
 					if (address instanceof Inet4Address) {
-						if (matchesVPNIP(address, null)) {
+						if (matchesVPNIP(address, snapshot)) {
 							String hostAddress = address.getHostAddress();
 							BindableInterface bi = mapBindableInterfaces.get(hostAddress);
 							if (bi == null) {
-								bi = new BindableInterface(address,
-										NetUtils.getByName(networkAdminInterface.getName()));
+								bi = new BindableInterface(address, info);
 								mapBindableInterfaces.put(hostAddress, bi);
-								if (!foundExistingVPNIP && address.equals(vpnIP)) {
+								if (!foundExistingVPNIP && address.equals(knownVPNIP)) {
 									foundExistingVPNIP = true;
 								}
 							}
@@ -364,36 +606,29 @@ public abstract class CheckerCommon
 				}
 			}
 
-			if (vpnIP != null && !foundExistingVPNIP) {
-				String niName = "Unknown Interface";
-				try {
-					NetworkInterface networkInterface = NetUtils.getByInetAddress(
-							currentBindIP);
-					niName = networkInterface.getName() + " ("
-							+ networkInterface.getDisplayName() + ")";
-				} catch (Throwable e) {
-				}
+			if (knownVPNIP != null && !foundExistingVPNIP) {
 				addReply(sReply, CHAR_WARN, "vpnhelper.existing.not.found",
 						new String[] {
 							"" + currentBindIP,
-							niName
+							snapshot.getInterfaceLabel(currentBindIP, "Unknown Interface")
 						});
 
-				if (numLoops == 0) {
-					try {
-						Field fldLastNICheck = NetUtils.class.getDeclaredField(
-								"last_ni_check");
-						fldLastNICheck.setAccessible(true);
-						fldLastNICheck.set(null, Long.valueOf(-1));
-						return handleFindBindingAddress(currentBindIP, sReply, ++numLoops);
-					} catch (Throwable t) {
-						t.printStackTrace();
-					}
+				if (numLoops == 0 && snapshot.getCapturedOn() < checkStartedOn) {
+					// Snapshot predates this check; rescan once before giving up on it
+					NetworkSnapshot.invalidate();
+					return decideBinding(currentBindIP, sReply, ++numLoops);
 				}
 			}
 
+			if (!lastCandidateAddresses.equals(mapBindableInterfaces.keySet())) {
+				// Interfaces came or went; cached reach results may be stale
+				reachCache.invalidate();
+				lastCandidateAddresses = new HashSet<>(mapBindableInterfaces.keySet());
+			}
+
 			BindableInterface[] array = mapBindableInterfaces.values().toArray(
 					new BindableInterface[0]);
+			probeReachability(array);
 			Arrays.sort(array);
 
 			for (BindableInterface bi : array) {
@@ -401,9 +636,7 @@ public abstract class CheckerCommon
 					addReply(sReply, CHAR_WARN, "vpnhelper.submask.too.broad",
 							new String[] {
 								"" + bi.address,
-								bi.networkInterface == null ? "null"
-										: bi.networkInterface.getName() + " ("
-												+ bi.networkInterface.getDisplayName() + ")",
+								bi.getInterfaceLabel(),
 								"" + bi.networkPrefixLength,
 								"" + minSubnetMaskBitCount
 							});
@@ -411,64 +644,46 @@ public abstract class CheckerCommon
 					addReply(sReply, CHAR_GOOD, "vpnhelper.found.bindable.vpn",
 							new String[] {
 								"" + bi.address,
-								bi.networkInterface == null ? "null"
-										: bi.networkInterface.getName() + " ("
-												+ bi.networkInterface.getDisplayName() + ")"
+								bi.getInterfaceLabel()
 							});
 				} else {
 					addReply(sReply, CHAR_WARN, "vpnhelper.not.reachable", new String[] {
 						"" + bi.address,
-						bi.networkInterface == null ? "null" : bi.networkInterface.getName()
-								+ " (" + bi.networkInterface.getDisplayName() + ")"
+						bi.getInterfaceLabel()
 					});
 				}
-				PluginVPNHelper.log(
-						"subnet: " + bi.networkPrefixLength + "; Score: " + bi.score);
+				PluginVPNHelper.logVerbose(() -> bi.address + " subnet: "
+						+ bi.networkPrefixLength + "; Score: " + bi.score);
 			}
 			newBind = array.length > 0 && array[0].canReach
 					&& array[0].isValidPrefixLength(minSubnetMaskBitCount) ? array[0]
 							: null;
 
-			InetAddress localAddress = null;
-
-			// Check if default routing goes through 10.*, by connecting to address
-			// via socket.  Address doesn't need to be reachable, just routable.
-			// This works on Windows, but on Mac returns a wildcard address
-			DatagramSocket socket = new DatagramSocket();
-			try {
-				socket.connect(testSocketAddress, 0);
-				localAddress = socket.getLocalAddress();
-			} finally {
-				socket.close();
-			}
+			InetAddress localAddress = getDefaultRouteAddress();
 
 			if (localAddress != null && !localAddress.isAnyLocalAddress()) {
-				NetworkInterface networkInterface = NetUtils.getByInetAddress(
-						localAddress);
+				NetworkSnapshot.AddressInfo localInfo = snapshot.get(localAddress);
+				String localLabel = snapshot.getInterfaceLabel(localAddress, "null");
 
-				s = texts.getLocalisedMessageText("vpnhelper.nonvuze.probable.route",
-						new String[] {
-							"" + localAddress,
-							networkInterface == null ? "null" : networkInterface.getName()
-									+ " (" + networkInterface.getDisplayName() + ")"
-						});
+				StatusReport.Entry route = new StatusReport.Entry(
+						StatusReport.Severity.NONE, "vpnhelper.nonvuze.probable.route",
+						"" + localAddress, localLabel).setInterface(localAddress,
+								localLabel);
 
 				if ((localAddress instanceof Inet4Address)
-						&& matchesVPNIP(localAddress, networkInterface)) {
+						&& matchesVPNIP(localAddress, snapshot)) {
 
 					if (newBind == null) {
 
-						int networkPrefixLength = getNetworkPrefixLength(networkInterface,
-								localAddress);
+						int networkPrefixLength = localInfo == null ? -1
+								: localInfo.networkPrefixLength;
 						if (networkPrefixLength >= 0
 								&& networkPrefixLength < minSubnetMaskBitCount) {
-							s = null;
+							route = null;
 							addReply(sReply, CHAR_WARN, "vpnhelper.nonvuze.submask.too.broad",
 									new String[] {
 										"" + localAddress,
-										networkInterface == null ? "null"
-												: networkInterface.getName() + " ("
-														+ networkInterface.getDisplayName() + ")",
+										localLabel,
 										"" + networkPrefixLength,
 										"" + minSubnetMaskBitCount
 									});
@@ -476,19 +691,18 @@ public abstract class CheckerCommon
 							addReply(sReply, CHAR_WARN, "vpnhelper.not.reachable",
 									new String[] {
 										"" + localAddress,
-										networkInterface == null ? "null"
-												: networkInterface.getName() + " ("
-														+ networkInterface.getDisplayName() + ")"
+										localLabel
 									});
 						} else {
-							newBind = new BindableInterface(localAddress, networkInterface);
+							newBind = new BindableInterface(localAddress, localInfo);
+							newBind.canReach = true;
 
-							s = CHAR_GOOD + " " + s + " "
-									+ texts.getLocalisedMessageText("vpnhelper.assuming.vpn");
+							route.setSeverity(StatusReport.Severity.GOOD).append(
+									"vpnhelper.assuming.vpn");
 						}
 					} else if (localAddress.equals(newBind.address)) {
-						s = CHAR_GOOD + " " + s + " "
-								+ texts.getLocalisedMessageText("vpnhelper.same.address");
+						route.setSeverity(StatusReport.Severity.GOOD).append(
+								"vpnhelper.same.address");
 					} else {
 						// Vuze not bound. We already found a boundable address, but it's not this one
 						/* Possibly good case:
@@ -500,36 +714,30 @@ public abstract class CheckerCommon
 						if (newStatusID != STATUS_ID_BAD) {
 							newStatusID = STATUS_ID_WARN;
 						}
-						s = CHAR_WARN + " " + s + " "
-								+ texts.getLocalisedMessageText(
-										"vpnhelper.not.same.future.address")
-								+ " "
-								+ texts.getLocalisedMessageText(
-										"default.routing.not.vpn.network.splitting")
-								+ " " + texts.getLocalisedMessageText(
-										"default.routing.not.vpn.network.splitting.unbound");
+						route.setSeverity(StatusReport.Severity.WARN).append(
+								"vpnhelper.not.same.future.address").append(
+										"default.routing.not.vpn.network.splitting").append(
+												"default.routing.not.vpn.network.splitting.unbound");
 					}
 
-					if (s != null) {
-						addLiteralReply(sReply, s);
+					if (route != null) {
+						addReply(sReply, route);
 					}
 
 				} else {
-					s = CHAR_WARN + " " + s;
+					route.setSeverity(StatusReport.Severity.WARN);
 					if (!currentBindIP.isLoopbackAddress()) {
-						s += " " + texts.getLocalisedMessageText(
-								"default.routing.not.vpn.network.splitting");
+						route.append("default.routing.not.vpn.network.splitting");
 					}
 
 					if (newBind == null) {
 						if (newStatusID != STATUS_ID_BAD) {
 							newStatusID = STATUS_ID_WARN;
 						}
-						s += " " + texts.getLocalisedMessageText(
-								"default.routing.not.vpn.network.splitting.unbound");
+						route.append("default.routing.not.vpn.network.splitting.unbound");
 					}
 
-					addLiteralReply(sReply, s);
+					addReply(sReply, route);
 				}
 			}
 
@@ -554,66 +762,137 @@ public abstract class CheckerCommon
 							configBindIP
 						});
 
-				if (currentBindIP.isLoopbackAddress()) {
-					if (numLoops == 0) {
-						try {
-							Field fldLastNICheck = NetUtils.class.getDeclaredField(
-									"last_ni_check");
-							fldLastNICheck.setAccessible(true);
-							fldLastNICheck.set(null, Long.valueOf(-1));
-							return handleFindBindingAddress(currentBindIP, sReply,
-									++numLoops);
-						} catch (Throwable t) {
-							t.printStackTrace();
-						}
-					}
+				if (currentBindIP.isLoopbackAddress() && numLoops == 0
+						&& snapshot.getCapturedOn() < checkStartedOn) {
+					NetworkSnapshot.invalidate();
+					return decideBinding(currentBindIP, sReply, ++numLoops);
 				}
 			}
 
-			return STATUS_ID_BAD;
+			return new BindingDecision(STATUS_ID_BAD, null, null,
+					isGoodExistingBind);
+		}
+
+		return new BindingDecision(newStatusID, newBind.address, newBind.info,
+				isGoodExistingBind);
+	}
+
+	/**
+	 * Run {@link #canReach(InetAddress)} for all candidates at once, on a
+	 * bounded pool.  Probes still running when the deadline passes are
+	 * cancelled and their candidate is treated as unreachable.
+	 */
+	private void probeReachability(BindableInterface[] candidates) {
+		if (candidates.length == 0) {
+			return;
+		}
+		if (candidates.length == 1) {
+			long startNanos = System.nanoTime();
+			candidates[0].canReach = canReach(candidates[0].address);
+			metrics.record(CheckMetrics.Phase.REACH, startNanos, true);
+			return;
+		}
+
+		List<Callable<Boolean>> tasks = new ArrayList<>(candidates.length);
+		for (final BindableInterface bi : candidates) {
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return canReach(bi.address);
+				}
+			});
+		}
+
+		long start = SystemTime.getMonotonousTime();
+		long startNanos = System.nanoTime();
+		boolean allFinished = true;
+		try {
+			List<Future<Boolean>> futures = getProbePool().invokeAll(tasks,
+					PROBE_DEADLINE_MS, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < candidates.length; i++) {
+				Future<Boolean> future = futures.get(i);
+				if (future.isCancelled()) {
+					allFinished = false;
+					PluginVPNHelper.log("Reach probe for " + candidates[i].address
+							+ " did not finish within " + PROBE_DEADLINE_MS + "ms");
+					continue;
+				}
+				try {
+					candidates[i].canReach = future.get();
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			allFinished = false;
+		} catch (RejectedExecutionException e) {
+			// destroyed while checking
+			allFinished = false;
 		}
+		metrics.record(CheckMetrics.Phase.REACH, startNanos, allFinished);
+		long elapsed = SystemTime.getMonotonousTime() - start;
+		PluginVPNHelper.logVerbose(() -> "Probed " + candidates.length
+				+ " addresses in " + elapsed + "ms");
+	}
 
-		rebindNetworkInterface(newBind.networkInterface, newBind.address, sReply);
-		return newStatusID;
+	private synchronized ExecutorService getProbePool() {
+		if (probePool == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PROBE_THREADS,
+					MAX_PROBE_THREADS, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private int count = 0;
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "VPNHelper Probe " + (++count));
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			pool.allowCoreThreadTimeOut(true);
+			probePool = pool;
+		}
+		return probePool;
 	}
 
 	/**
-	 * @return rebind sucessful, or rebinding to already bound address
+	 * Start binding to the interface.  Doesn't wait for the core.
+	 *
+	 * @return Completes with true when the core confirms the new binding (or
+	 * it was already bound), false if it couldn't be set or wasn't confirmed
+	 * within {@link #REBIND_TIMEOUT_MS}
 	 */
-	private final boolean rebindNetworkInterface(
-			NetworkInterface networkInterface, InetAddress onlyToAddress,
-			final StringBuilder sReply) {
-		vpnIP = onlyToAddress;
+	private final CompletableFuture<Boolean> rebindNetworkInterface(
+			NetworkSnapshot.AddressInfo info, InetAddress onlyToAddress,
+			final StatusReport sReply) {
+		if (info == null) {
+			addLiteralReply(sReply, CHAR_BAD,
+					"No Network Interface for " + onlyToAddress);
+			return CompletableFuture.completedFuture(false);
+		}
+
+		setVPNIP(onlyToAddress);
 
-		config.setUnsafeBooleanParameter("Enforce Bind IP", true);
-		config.setUnsafeBooleanParameter("Check Bind IP On Start", true);
-		config.setUnsafeBooleanParameter("Plugin.UPnP.upnp.enable", false);
-		config.setUnsafeBooleanParameter("Plugin.UPnP.natpmp.enable", false);
+		coreConfig.setUnsafeBoolean("Enforce Bind IP", true);
+		coreConfig.setUnsafeBoolean("Check Bind IP On Start", true);
+		coreConfig.setUnsafeBoolean("Plugin.UPnP.upnp.enable", false);
+		coreConfig.setUnsafeBoolean("Plugin.UPnP.natpmp.enable", false);
 
 		/**
 		if (true) {
-			sReply.append("Would rebind to " + networkInterface.getDisplayName()
-					+ onlyToAddress + "\n");
-			return false;
+			addLiteralReply(sReply, "Would rebind to "
+					+ info.networkInterface.displayName + onlyToAddress);
+			return CompletableFuture.completedFuture(false);
 		}
 		/**/
 
-		String ifName = networkInterface.getName();
+		String ifName = info.networkInterface.name;
 
 		String configBindIP = config.getCoreStringParameter(
 				PluginConfig.CORE_PARAM_STRING_LOCAL_BIND_IP);
 
-		int bindNetworkInterfaceIndex = -1;
-		if (onlyToAddress != null) {
-			Enumeration<InetAddress> inetAddresses = networkInterface.getInetAddresses();
-			for (int j = 0; inetAddresses.hasMoreElements(); j++) {
-				InetAddress element = inetAddresses.nextElement();
-				if (element.equals(onlyToAddress)) {
-					bindNetworkInterfaceIndex = j;
-					break;
-				}
-			}
-		}
+		int bindNetworkInterfaceIndex = onlyToAddress == null ? -1 : info.index;
 
 		if (configBindIP.equals(ifName)
 				|| (bindNetworkInterfaceIndex >= 0 && configBindIP.equals(
@@ -622,96 +901,271 @@ public abstract class CheckerCommon
 			addReply(sReply, CHAR_GOOD, "vpnhelper.already.bound.good", new String[] {
 				ifName
 			});
+			if (!coreConfig.isEmpty()) {
+				coreConfigDebouncer.trigger();
+			}
 		} else {
 			String newConfigBindIP = ifName;
 			if (bindNetworkInterfaceIndex >= 0) {
 				newConfigBindIP += "[" + bindNetworkInterfaceIndex + "]";
 			}
 
-			final AESemaphore sem = new AESemaphore("VPNHelper BindWait");
-
-			NetworkAdmin.getSingleton().addPropertyChangeListener(
-					new NetworkAdminPropertyChangeListener() {
-						@Override
-						public void propertyChanged(String property) {
-							if (property.equals(NetworkAdmin.PR_DEFAULT_BIND_ADDRESS)) {
-								sem.releaseForever();
-								NetworkAdmin.getSingleton().removePropertyChangeListener(this);
+			final CompletableFuture<Boolean> future = new CompletableFuture<>();
+			final NetworkAdminPropertyChangeListener listener = new NetworkAdminPropertyChangeListener() {
+				@Override
+				public void propertyChanged(String property) {
+					if (property.equals(NetworkAdmin.PR_DEFAULT_BIND_ADDRESS)) {
+						future.complete(true);
+					}
+				}
+			};
+			NetworkAdmin.getSingleton().addPropertyChangeListener(listener);
 
-								addReply(sReply, CHAR_GOOD,
-										"vpnhelper.bind.complete.triggered");
-							}
-						}
-					});
+			final long start = System.nanoTime();
+			ScheduledFuture<?> timeout = null;
+			try {
+				if (scheduler != null) {
+					timeout = scheduler.schedule(() -> future.complete(false),
+							REBIND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				}
+			} catch (RejectedExecutionException e) {
+				// destroyed
+				future.complete(false);
+			}
+			final ScheduledFuture<?> timeoutFinal = timeout;
+			// Whichever way it completes, the listener goes
+			future.whenComplete((confirmed, t) -> {
+				NetworkAdmin.getSingleton().removePropertyChangeListener(listener);
+				if (timeoutFinal != null) {
+					timeoutFinal.cancel(false);
+				}
+				metrics.record(CheckMetrics.Phase.REBIND_WAIT, start,
+						Boolean.TRUE.equals(confirmed));
+			});
 
 			// I think setting CORE_PARAM_STRING_LOCAL_BIND_IP is actually synchronous
 			// We set up a PropertyChangeListener in case it ever becomes asynchronous
-			config.setCoreStringParameter(
-					PluginConfig.CORE_PARAM_STRING_LOCAL_BIND_IP, newConfigBindIP);
+			// Any pending flags and ports go with it, in one reconfiguration
+			coreConfig.setCoreString(PluginConfig.CORE_PARAM_STRING_LOCAL_BIND_IP,
+					newConfigBindIP);
+			coreConfigDebouncer.cancel();
+			commitCoreConfig();
 
 			addReply(sReply, CHAR_GOOD, "vpnhelper.change.binding", new String[] {
 				"" + newConfigBindIP,
-				networkInterface == null ? "null" : networkInterface.getName() + " ("
-						+ networkInterface.getDisplayName() + ")"
+				info.networkInterface.getLabel()
 			});
 
-			sem.reserve(11000);
-			return sem.isReleasedForever();
+			return future;
 		}
-		return true;
+		return CompletableFuture.completedFuture(true);
 	}
 
-	protected final void addReply(StringBuilder sReply, char prefix, String id) {
-		String s = (prefix == 0 ? "" : prefix + " ")
-				+ texts.getLocalisedMessageText(id);
-		addLiteralReply(sReply, s);
+	/**
+	 * Wait for the rebind this check started, if any, so the check ends with
+	 * the core in the state it reports
+	 */
+	private void awaitRebind(StatusReport sReply) {
+		CompletableFuture<Boolean> future = pendingRebind;
+		pendingRebind = null;
+		if (future == null) {
+			return;
+		}
+		boolean confirmed;
+		try {
+			// the scheduler times it out; this is only a backstop
+			confirmed = future.get(REBIND_TIMEOUT_MS + 1000, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.complete(false);
+			return;
+		} catch (Exception e) {
+			future.complete(false);
+			confirmed = false;
+		}
+		if (confirmed) {
+			addReply(sReply, CHAR_GOOD, "vpnhelper.bind.complete.triggered");
+		} else {
+			addReply(sReply, CHAR_WARN, "vpnhelper.bind.not.confirmed",
+					Long.toString(REBIND_TIMEOUT_MS / 1000));
+		}
 	}
 
-	protected final void addReply(StringBuilder sReply, char prefix, String id,
-			String... params) {
-		String s = (prefix == 0 ? "" : prefix + " ")
-				+ (texts == null ? "!" + id + "!" + Arrays.toString(params)
-						: texts.getLocalisedMessageText(id, params));
-		addLiteralReply(sReply, s);
+	/**
+	 * Set the VPN address, dropping pooled connections of the old one
+	 */
+	private void setVPNIP(InetAddress newVPNIP) {
+		InetAddress oldVPNIP = vpnIP;
+		vpnIP = newVPNIP;
+		if (oldVPNIP != null && !oldVPNIP.equals(newVPNIP)) {
+			httpClients.close(oldVPNIP);
+		}
 	}
 
-	protected final void addLiteralReply(StringBuilder sReply, String s) {
-		sReply.append(s).append("\n");
-		PluginVPNHelper.log(s);
+	protected final StatusReport.Entry addReply(StatusReport sReply,
+			char prefix, String id, String... params) {
+		return addReply(sReply, new StatusReport.Entry(
+				StatusReport.Severity.fromPrefix(prefix), id, params));
 	}
 
-	protected final void changePort(int port, StringBuilder sReply) {
+	protected final StatusReport.Entry addReply(StatusReport sReply,
+			StatusReport.Entry entry) {
+		sReply.add(entry);
+		PluginVPNHelper.log(() -> entry.render(texts));
+		return entry;
+	}
+
+	protected final void addLiteralReply(StatusReport sReply, char prefix,
+			String s) {
+		StatusReport.Entry entry = sReply.addLiteral(
+				StatusReport.Severity.fromPrefix(prefix), s);
+		PluginVPNHelper.log(() -> entry.render(texts));
+	}
+
+	protected final void addLiteralReply(StatusReport sReply, String s) {
+		addLiteralReply(sReply, (char) 0, s);
+	}
+
+	/**
+	 * Queue port as the core's TCP and UDP port.  The write happens once
+	 * changes settle, and is reported then by {@link #commitCoreConfig()}
+	 */
+	protected final void changePort(int port, StatusReport sReply) {
 		boolean changed = false;
-		PluginConfig pluginConfig = pi.getPluginconfig();
-		int coreTCPPort = pluginConfig.getCoreIntParameter(
+		// Compared with any port still waiting to be written
+		int coreTCPPort = coreConfig.getCoreInt(
 				PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT);
-		int coreUDPPort = pluginConfig.getCoreIntParameter(
+		int coreUDPPort = coreConfig.getCoreInt(
 				PluginConfig.CORE_PARAM_INT_INCOMING_UDP_PORT);
 		if (coreTCPPort != port) {
-			pluginConfig.setCoreIntParameter(
-					PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT, port);
-			addReply(sReply, CHAR_GOOD, "vpnhelper.changed.port", "TCP",
+			coreConfig.setCoreInt(PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT,
+					port);
+			addReply(sReply, CHAR_GOOD, "vpnhelper.changing.port", "TCP",
 					Integer.toString(coreTCPPort), Integer.toString(port));
 			changed = true;
 		}
 		if (coreUDPPort != port) {
-			pluginConfig.setCoreIntParameter(
-					PluginConfig.CORE_PARAM_INT_INCOMING_UDP_PORT, port);
-			addReply(sReply, CHAR_GOOD, "vpnhelper.changed.port", "UDP",
+			coreConfig.setCoreInt(PluginConfig.CORE_PARAM_INT_INCOMING_UDP_PORT,
+					port);
+			addReply(sReply, CHAR_GOOD, "vpnhelper.changing.port", "UDP",
 					Integer.toString(coreUDPPort), Integer.toString(port));
 			changed = true;
 		}
-		if (!changed) {
+		if (changed) {
+			// TCP and UDP, and any quick follow-up change, in one write
+			coreConfigDebouncer.trigger();
+		} else {
 			addReply(sReply, CHAR_GOOD, "vpnhelper.port.already.set",
 					Integer.toString(port));
 		}
 	}
 
+	/**
+	 * Write the queued core config changes, reporting each port written
+	 */
+	private void commitCoreConfig() {
+		long start = System.nanoTime();
+		final StatusReport sReply = new StatusReport(texts);
+		int written = 0;
+		boolean ok = false;
+		try {
+			written = coreConfig.commit((key, oldValue, newValue) -> {
+				String protocol = getPortProtocol(key);
+				if (protocol != null) {
+					addReply(sReply, CHAR_GOOD, "vpnhelper.changed.port", protocol,
+							oldValue.toString(), newValue.toString());
+				}
+			});
+			ok = true;
+		} catch (Throwable t) {
+			t.printStackTrace();
+		}
+		if (written > 0 || !ok) {
+			metrics.record(CheckMetrics.Phase.CORE_CONFIG_WRITE, start, ok);
+		}
+	}
+
+	/**
+	 * @return "TCP" or "UDP" if key is one of the core's incoming ports
+	 */
+	private static String getPortProtocol(String key) {
+		if (PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT.equals(key)) {
+			return "TCP";
+		}
+		if (PluginConfig.CORE_PARAM_INT_INCOMING_UDP_PORT.equals(key)) {
+			return "UDP";
+		}
+		return null;
+	}
+
 	public final Status getCurrentStatus() {
 		return currentStatus;
 	}
 
-	protected final Status findBindingAddress(StringBuilder sReply) {
+	/**
+	 * Check if default routing goes through 10.*, by connecting to address
+	 * via socket.  Address doesn't need to be reachable, just routable.
+	 * This works on Windows, but on Mac returns a wildcard address
+	 */
+	protected InetAddress getDefaultRouteAddress()
+			throws SocketException {
+		DatagramSocket socket = new DatagramSocket();
+		try {
+			socket.connect(testSocketAddress, 0);
+			return socket.getLocalAddress();
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Hash of the network state that {@link #handleFindBindingAddress} bases
+	 * its decision on: interfaces with their addresses and prefix lengths,
+	 * bindable addresses, the UDP bind IP, the configured bind and the default
+	 * route.
+	 *
+	 * @return 0 if state could not be determined
+	 */
+	private long computeNetworkFingerprint() {
+		try {
+			long hash = FNV_OFFSET;
+			NetworkSnapshot snapshot = captureNetworkSnapshot();
+			for (NetworkSnapshot.InterfaceInfo networkInterface : snapshot.getInterfaces()) {
+				hash = fnv(hash, networkInterface.name);
+				for (NetworkSnapshot.AddressInfo info : networkInterface.addresses) {
+					hash = fnv(hash, info.address.getHostAddress());
+					hash = fnv(hash, Integer.toString(info.networkPrefixLength));
+				}
+			}
+			for (InetAddress address : snapshot.getBindableAddresses()) {
+				hash = fnv(hash, address.getHostAddress());
+			}
+
+			List<PRUDPPacketHandler> handlers = PRUDPPacketHandlerFactory.getHandlers();
+			for (PRUDPPacketHandler handler : handlers) {
+				hash = fnv(hash, String.valueOf(handler.getBindIP()));
+			}
+			hash = fnv(hash, config.getCoreStringParameter(
+					PluginConfig.CORE_PARAM_STRING_LOCAL_BIND_IP));
+			hash = fnv(hash, String.valueOf(getDefaultRouteAddress()));
+			return hash == 0 ? 1 : hash;
+		} catch (Throwable t) {
+			PluginVPNHelper.log("Network fingerprint: " + t.toString());
+			return 0;
+		}
+	}
+
+	private static long fnv(long hash, String s) {
+		if (s != null) {
+			for (int i = 0; i < s.length(); i++) {
+				hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+			}
+		}
+		// separator, so "ab"+"c" differs from "a"+"bc"
+		return (hash ^ 0xff) * FNV_PRIME;
+	}
+
+	protected final Status findBindingAddress(StatusReport sReply) {
 		Status newStatus;
 
 		// Find our VPN binding (interface) address.  Checking UDP is the best bet,
@@ -724,7 +1178,7 @@ public abstract class CheckerCommon
 			releasableHandler.release();
 		}
 		if (handlers.size() == 0) {
-			addLiteralReply(sReply, CHAR_BAD + " No UDP Handlers");
+			addLiteralReply(sReply, CHAR_BAD, "No UDP Handlers");
 
 			newStatus = new Status(STATUS_ID_BAD);
 		} else {
@@ -741,31 +1195,111 @@ public abstract class CheckerCommon
 		return newStatus;
 	}
 
-	public final String portBindingCheck() {
+	/**
+	 * Queue a check.  Never blocks.
+	 * <p/>
+	 * Checks run one at a time on the check thread.  Requests made while a
+	 * check is waiting to start share that check; requests made while one is
+	 * running get the next one.
+	 */
+	public final CompletableFuture<CheckResult> portBindingCheck() {
+		final CompletableFuture<CheckResult> future;
 		synchronized (this) {
-			if (checkingPortBinding) {
-				return lastPortCheckStatus;
+			if (pendingCheck != null) {
+				return pendingCheck;
 			}
-			checkingPortBinding = true;
+			future = new CompletableFuture<>();
+			pendingCheck = future;
 		}
-
-		CheckerListener[] triggers = PluginVPNHelper.instance.getCheckerListeners();
-		for (CheckerListener l : triggers) {
-			try {
-				l.portCheckStart();
-			} catch (Exception e) {
-				e.printStackTrace();
+		try {
+			checkExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (CheckerCommon.this) {
+						if (pendingCheck == future) {
+							pendingCheck = null;
+						}
+					}
+					try {
+						future.complete(runPortBindingCheck());
+					} catch (Throwable t) {
+						future.completeExceptionally(t);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// destroyed
+			synchronized (this) {
+				if (pendingCheck == future) {
+					pendingCheck = null;
+				}
 			}
+			future.complete(lastCheckResult);
 		}
+		return future;
+	}
 
-		StringBuilder sReply = new StringBuilder();
-
+	/**
+	 * Run task on the check thread, after any checks already queued.  For work
+	 * that touches state a check also touches, like the port.
+	 */
+	protected final void queueTask(final Runnable task) {
 		try {
-			Status newStatus = findBindingAddress(sReply);
+			checkExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} catch (Throwable t) {
+						t.printStackTrace();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// destroyed
+		}
+	}
+
+	/**
+	 * @return Result of the last completed check, or null if there hasn't been one
+	 */
+	public final CheckResult getLastCheckResult() {
+		return lastCheckResult;
+	}
+
+	private CheckResult runPortBindingCheck() {
+		checkingPortBinding = true;
+
+		PluginVPNHelper.instance.getEventBus().firePortCheckStart();
+
+		StatusReport sReply = new StatusReport(texts);
+		checkStartedOn = SystemTime.getMonotonousTime();
+		long checkStartNanos = System.nanoTime();
+		Status resultStatus = null;
 
+		try {
 			boolean doPortForwarding = config.getPluginBooleanParameter(
 					PluginConstants.CONFIG_DO_PORT_FORWARDING);
+			PortSource source = updatePortSource(doPortForwarding);
+
+			long fingerprint = computeNetworkFingerprint();
+			boolean networkUnchanged = !forceFullCheck && fingerprint != 0
+					&& fingerprint == lastGoodFingerprint && lastBindingStatus != null;
+			forceFullCheck = false;
+			boolean leaseExpired = SystemTime.getMonotonousTime() >= rpcLeaseExpiresOn;
+
+			if (networkUnchanged && !leaseExpired) {
+				PluginVPNHelper.log(
+						"Network unchanged since last check, reusing results");
+				metrics.record(CheckMetrics.Phase.CHECK_REUSED, checkStartNanos,
+						true);
+				return notifyPortCheckDone(lastPortCheckStatus, currentStatus, true);
+			}
 
+			Status newStatus = findBindingAddress(sReply);
+			lastBindingStatus = newStatus;
+
+			boolean gotPort = !doPortForwarding;
 			if (doPortForwarding) {
 
 				boolean callRPC = true;
@@ -774,12 +1308,21 @@ public abstract class CheckerCommon
 				if (!portReadLocation.isEmpty()) {
 					String portReadLocationRegex = config.getPluginStringParameter(
 							PluginConstants.CONFIG_PORT_READ_LOCATION_REGEX);
-					callRPC = !getPortFromLocationLocation(portReadLocation,
-							portReadLocationRegex, sReply);
+					long start = System.nanoTime();
+					callRPC = source == null
+							? !getPortFromLocationLocation(portReadLocation,
+									portReadLocationRegex, sReply)
+							: !getPortFromSource(source, sReply);
+					metrics.record(CheckMetrics.Phase.PORT_LOCATION, start, !callRPC);
 				}
+				gotPort = !callRPC;
 
 				if (callRPC) {
+					long start = System.nanoTime();
 					Status rpcCallResult = callRPCforPort(vpnIP, sReply);
+					gotPort = rpcCallResult != null
+							&& rpcCallResult.statusID == STATUS_ID_OK;
+					metrics.record(CheckMetrics.Phase.RPC, start, gotPort);
 					if (rpcCallResult != null && newStatus.statusID != STATUS_ID_BAD
 							&& vpnIP != null) {
 						newStatus = rpcCallResult;
@@ -792,9 +1335,20 @@ public abstract class CheckerCommon
 				}
 			}
 
+			// Only a complete success may be reused
+			boolean reusable = newStatus.statusID == STATUS_ID_OK && gotPort;
+			rpcLeaseExpiresOn = reusable
+					? SystemTime.getMonotonousTime() + RPC_LEASE_MS : 0;
+
+			awaitRebind(sReply);
+
+			// binding may have just changed, so take the state we left it in
+			lastGoodFingerprint = reusable ? computeNetworkFingerprint() : 0;
+
 			if (newStatus.statusID != -1) {
 				currentStatus = newStatus;
 			}
+			resultStatus = newStatus;
 			String msgID = null;
 			switch (newStatus.statusID) {
 				case STATUS_ID_BAD:
@@ -808,116 +1362,128 @@ public abstract class CheckerCommon
 					break;
 			}
 			if (msgID != null) {
-				sReply.insert(0, texts.getLocalisedMessageText(msgID) + "\n");
+				sReply.insertFirst(
+						new StatusReport.Entry(StatusReport.Severity.NONE, msgID));
 			}
 
 		} catch (Throwable t) {
 			t.printStackTrace();
 			PluginVPNHelper.log(t.toString());
+			lastGoodFingerprint = 0;
+			pendingRebind = null;
 		}
 
-		lastPortCheckStatus = sReply.toString();
-
-		triggers = PluginVPNHelper.instance.getCheckerListeners();
-		for (CheckerListener l : triggers) {
-			try {
-				l.portCheckStatusChanged(lastPortCheckStatus);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		metrics.record(CheckMetrics.Phase.CHECK, checkStartNanos,
+				resultStatus != null && resultStatus.statusID != STATUS_ID_BAD);
+		if (resultStatus == null || resultStatus.statusID == STATUS_ID_BAD
+				|| resultStatus.statusID == STATUS_ID_WARN) {
+			// Something's wrong; don't let cached reachability hide what
+			reachCache.invalidate();
 		}
+		return notifyPortCheckDone(sReply, resultStatus, false);
+	}
 
-		synchronized (this) {
-			checkingPortBinding = false;
-		}
-		return lastPortCheckStatus;
+	private CheckResult notifyPortCheckDone(StatusReport status,
+			Status resultStatus,
+			boolean reused) {
+		lastPortCheckStatus = status;
+		CheckResult result = new CheckResult(resultStatus, status, reused);
+		lastCheckResult = result;
+
+		CheckerEventBus eventBus = PluginVPNHelper.instance.getEventBus();
+		eventBus.firePortCheckStatusChanged(lastPortCheckStatus);
+		eventBus.firePortCheckDone();
+
+		checkingPortBinding = false;
+		return result;
 	}
 
 	private boolean getPortFromLocationLocation(String location, String regex,
-			StringBuilder sReply) {
-		String textToParse = null;
-		boolean warned = false;
-		if (location.startsWith("http")) {
-			try {
-				HttpGet getLoginPage = new HttpGet(location);
-				RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
-						vpnIP).setConnectTimeout(15000).build();
-				getLoginPage.setConfig(requestConfig);
-
-				CloseableHttpClient httpClientLoginPage = HttpClients.createDefault();
-				CloseableHttpResponse loginPageResponse = httpClientLoginPage.execute(
-						getLoginPage);
-
-				textToParse = FileUtil.readInputStreamAsString(
-						loginPageResponse.getEntity().getContent(), -1, "utf8");
-
-			} catch (Throwable t) {
-				addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
-						location, t.toString());
-				warned = true;
-			}
+			StatusReport sReply) {
+		PortLocationReader.Result result = portLocationReader.read(location,
+				regex, vpnIP);
+		if (result.port <= 0) {
+			addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
+					location, result.error);
+			return false;
 		}
-		if (textToParse == null) {
-			File file = new File(location);
-			if (file.isFile()) {
-				try {
-					textToParse = FileUtil.readFileAsString(file, -1, "utf8");
-				} catch (Throwable t) {
-					addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
-							location, t.toString());
-				}
-			}
+		if (result.unchanged) {
+			PluginVPNHelper.log("Port read location unchanged: " + location);
 		}
+		changePort(result.port, sReply);
+		return true;
+	}
 
-		if (textToParse != null) {
-			try {
-				String portString;
-				if (regex.isEmpty()) {
-					portString = textToParse;
-				} else {
-					Pattern pat = Pattern.compile(regex);
-					Matcher matcher = pat.matcher(textToParse);
-					if (matcher.find()) {
-						if (matcher.groupCount() > 0) {
-							portString = matcher.group(1);
-						} else {
-							portString = regex.substring(matcher.start(), matcher.end());
-						}
-					} else {
-						addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
-								location, "No matching port string matching '" + regex
-										+ " from " + textToParse);
-						return false;
-					}
-				}
-
-				int port = Integer.parseInt(portString);
-				if (port > 0) {
-					changePort(port, sReply);
-					return true;
-				}
+	private boolean getPortFromSource(PortSource source, StatusReport sReply) {
+		int port = source.getLastPort();
+		if (port <= 0) {
+			String error = source.getLastError();
+			addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
+					source.getLocation(), error == null ? "Waiting" : error);
+			return false;
+		}
+		changePort(port, sReply);
+		return true;
+	}
 
-			} catch (Throwable t) {
-				addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
-						location, t.toString());
-				warned = true;
+	/**
+	 * Start, replace or stop the port source to match the port read location
+	 *
+	 * @return null if there's no location, or it can only be polled
+	 */
+	private PortSource updatePortSource(boolean doPortForwarding) {
+		String location = doPortForwarding ? config.getPluginStringParameter(
+				PluginConstants.CONFIG_PORT_READ_LOCATION) : "";
+		String regex = config.getPluginStringParameter(
+				PluginConstants.CONFIG_PORT_READ_LOCATION_REGEX);
+		PortSource oldSource;
+		PortSource newSource;
+		synchronized (this) {
+			oldSource = portSource;
+			if (oldSource != null && oldSource.getLocation().equals(location)
+					&& oldSource.getRegex().equals(regex)) {
+				return oldSource;
 			}
+			newSource = location.isEmpty() || scheduler == null ? null
+					: PortSource.create(location, regex, scheduler, httpClients,
+							(pushedFrom, port) -> portPushDebouncer.trigger());
+			portSource = newSource;
+		}
+		if (oldSource != null) {
+			oldSource.stop();
 		}
+		if (newSource != null) {
+			PluginVPNHelper.log("Listening for port from " + newSource);
+			newSource.start();
+		}
+		return newSource;
+	}
 
-		if (!warned) {
-			addReply(sReply, CHAR_WARN, "vpnhelper.port.from.location.failed",
-					location, "Can't Find");
+	private void applyPushedPort() {
+		PortSource source = portSource;
+		final int port = source == null ? 0 : source.getLastPort();
+		if (port > 0) {
+			queueTask(() -> changePort(port, new StatusReport(texts)));
 		}
-		return false;
 	}
 
 	protected abstract Status callRPCforPort(InetAddress vpnIP,
-			StringBuilder sReply);
+			StatusReport sReply);
 
 	protected abstract boolean canReach(InetAddress addressToReach);
 
 	protected boolean canReach(InetAddress binrAddress, URI uri) {
+		String domain = uri.getHost();
+		Boolean cached = reachCache.get(binrAddress, domain);
+		if (cached != null) {
+			return cached;
+		}
+		boolean reachable = canReachNoCache(binrAddress, uri);
+		reachCache.put(binrAddress, domain, reachable);
+		return reachable;
+	}
 
+	private boolean canReachNoCache(InetAddress binrAddress, URI uri) {
 		InetAddress[] resolve = null;
 		try {
 			String domain = uri.getHost();
@@ -926,7 +1492,7 @@ public abstract class CheckerCommon
 			// we'll need to disable it for the URL
 			AEProxySelector selector = AEProxySelectorFactory.getSelector();
 			if (selector != null) {
-				resolve = SystemDefaultDnsResolver.INSTANCE.resolve(domain);
+				resolve = CachingDnsResolver.get().resolve(domain);
 
 				for (InetAddress address : resolve) {
 					selector.setProxy(new InetSocketAddress(address, 443),
@@ -937,10 +1503,10 @@ public abstract class CheckerCommon
 			HttpHead getHead = new HttpHead(uri);
 			RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
 					binrAddress).setConnectionRequestTimeout(6000).setConnectTimeout(
-							12000).build();
+							12000).setSocketTimeout(12000).build();
 			getHead.setConfig(requestConfig);
 
-			CloseableHttpResponse response = HttpClients.createDefault().execute(
+			CloseableHttpResponse response = httpClients.get(binrAddress).execute(
 					getHead);
 
 			response.close();
@@ -966,31 +1532,6 @@ public abstract class CheckerCommon
 		this.minSubnetMaskBitCount = minSubnetBitCount;
 	}
 
-	public int getNetworkPrefixLength(NetworkInterface networkInterface,
-			InetAddress address) {
-		int networkPrefixLength = -1;
-		try{
-			List<InterfaceAddress> interfaceAddresses = networkInterface.getInterfaceAddresses();
-			for (InterfaceAddress interfaceAddress : interfaceAddresses) {
-				if (!interfaceAddress.getAddress().equals(address)) {
-					continue;
-				}
-				networkPrefixLength = interfaceAddress.getNetworkPrefixLength();
-				// JDK-7107883 : getNetworkPrefixLength() does not return correct prefix length
-				// networkPrefixLength will be zero on Java <= 7 when there is no
-				// Broadcast address.
-				// I'm guessing there is no broadcast address returned when mask is 32
-				// on linux, but I can't confirm (I've seen it though)
-				if (networkPrefixLength == 0 && interfaceAddress.getBroadcast() == null) {
-					networkPrefixLength = 32;
-				}
-			}
-		}catch( Throwable e ){
-			// ignore, we get an NPE in networkInterface.getInterfaceAddresses() sometimes it seems
-		}
-		return networkPrefixLength;
-	}
-
 	public static class Status
 	{
 		public int statusID;
@@ -1031,6 +1572,27 @@ public abstract class CheckerCommon
 		}
 	}
 
+	static final class BindingDecision
+	{
+		final int statusID;
+
+		/** null if no suitable address was found */
+		final InetAddress address;
+
+		final NetworkSnapshot.AddressInfo info;
+
+		/** Current bind is already a VPN address */
+		final boolean existingBindGood;
+
+		BindingDecision(int statusID, InetAddress address,
+				NetworkSnapshot.AddressInfo info, boolean existingBindGood) {
+			this.statusID = statusID;
+			this.address = address;
+			this.info = info;
+			this.existingBindGood = existingBindGood;
+		}
+	}
+
 	private class BindableInterface
 		implements Comparable<BindableInterface>
 	{
@@ -1040,19 +1602,18 @@ public abstract class CheckerCommon
 
 		public int networkPrefixLength = -1;
 
-		public NetworkInterface networkInterface;
+		public NetworkSnapshot.AddressInfo info;
 
 		public int score;
 
 		public BindableInterface(InetAddress address,
-				NetworkInterface networkInterface) {
+				NetworkSnapshot.AddressInfo info) {
 			this.address = address;
-			this.networkInterface = networkInterface;
-			this.canReach = canReach(address);
+			this.info = info;
 
-			if (networkInterface != null) {
-				String name = networkInterface.getName();
-				String displayName = networkInterface.getDisplayName();
+			if (info != null) {
+				String name = info.networkInterface.name;
+				String displayName = info.networkInterface.displayName;
 
 				if (displayName.contains("VPN")) {
 					score += 2;
@@ -1062,10 +1623,14 @@ public abstract class CheckerCommon
 					score--;
 				}
 
-				networkPrefixLength = getNetworkPrefixLength(networkInterface, address);
+				networkPrefixLength = info.networkPrefixLength;
 			}
 		}
 
+		public String getInterfaceLabel() {
+			return info == null ? "null" : info.networkInterface.getLabel();
+		}
+
 		public boolean isValidPrefixLength(int minMask) {
 			return networkPrefixLength == -1 || networkPrefixLength >= minMask;
 		}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Delivers checker events to {@link CheckerListener}s without making the
+ * checker wait for them.
+ * <p/>
+ * Each listener has its own queue with one slot per event type, drained on a
+ * pooled thread, one event at a time.  A newer event replaces an undelivered
+ * one of the same type, so a slow listener only ever sees the latest status.
+ * A status report whose text is the same as the last one delivered is
+ * skipped; {@link CheckerListener#portCheckDone()} is not, so a listener
+ * always learns that a check it saw start has ended.
+ */
+public class CheckerEventBus
+{
+	private enum Type {
+		CHECKER_CHANGED,
+		PORT_CHECK_START,
+		PORT_CHECK_STATUS,
+		PORT_CHECK_DONE,
+		PROTOCOL_ADDRESSES
+	}
+
+	private static final Type[] TYPES = Type.values();
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "VPNHelper Events");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	private long nextSeq;
+
+	public void add(CheckerListener listener) {
+		subscriptions.add(new Subscription(listener));
+	}
+
+	public void remove(CheckerListener listener) {
+		for (Subscription subscription : subscriptions) {
+			if (subscription.listener == listener) {
+				subscriptions.remove(subscription);
+			}
+		}
+	}
+
+	public CheckerListener[] getListeners() {
+		List<CheckerListener> listeners = new ArrayList<>(subscriptions.size());
+		for (Subscription subscription : subscriptions) {
+			listeners.add(subscription.listener);
+		}
+		return listeners.toArray(new CheckerListener[0]);
+	}
+
+	public void fireCheckerChanged(CheckerCommon checker) {
+		post(null, Type.CHECKER_CHANGED, new Event(checker));
+	}
+
+	public void firePortCheckStart() {
+		post(null, Type.PORT_CHECK_START, new Event(null));
+	}
+
+	public void firePortCheckStatusChanged(StatusReport status) {
+		post(null, Type.PORT_CHECK_STATUS, new Event(status));
+	}
+
+	public void firePortCheckDone() {
+		post(null, Type.PORT_CHECK_DONE, new Event(null));
+	}
+
+	public void fireProtocolAddressesStatusChanged(StatusReport status) {
+		post(null, Type.PROTOCOL_ADDRESSES, new Event(status));
+	}
+
+	/**
+	 * Send the current reports to one (usually just added) listener
+	 */
+	public void replay(CheckerListener listener, StatusReport portCheckStatus,
+			StatusReport protocolAddresses) {
+		post(listener, Type.PORT_CHECK_STATUS, new Event(portCheckStatus));
+		post(listener, Type.PROTOCOL_ADDRESSES, new Event(protocolAddresses));
+	}
+
+	public void destroy() {
+		subscriptions.clear();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @param only null for all listeners
+	 */
+	private void post(CheckerListener only, Type type, Event event) {
+		synchronized (this) {
+			event.seq = nextSeq++;
+		}
+		for (Subscription subscription : subscriptions) {
+			if (only == null || subscription.listener == only) {
+				subscription.offer(type, event);
+			}
+		}
+	}
+
+	private static class Event
+	{
+		final Object value;
+
+		long seq;
+
+		Event(Object value) {
+			this.value = value;
+		}
+	}
+
+	private class Subscription
+		implements Runnable
+	{
+		final CheckerListener listener;
+
+		/** Undelivered event per type; guarded by this */
+		private final Event[] pending = new Event[TYPES.length];
+
+		private boolean draining;
+
+		/** Only touched while draining */
+		private final int[] lastHashes = new int[TYPES.length];
+
+		private final boolean[] delivered = new boolean[TYPES.length];
+
+		Subscription(CheckerListener listener) {
+			this.listener = listener;
+		}
+
+		synchronized void offer(Type type, Event event) {
+			pending[type.ordinal()] = event;
+			if (type == Type.PORT_CHECK_DONE) {
+				// the check is over; no need to say it started
+				pending[Type.PORT_CHECK_START.ordinal()] = null;
+			}
+			if (draining) {
+				return;
+			}
+			draining = true;
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// destroyed
+				draining = false;
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Type type = null;
+				Event event = null;
+				synchronized (this) {
+					for (Type t : TYPES) {
+						Event e = pending[t.ordinal()];
+						if (e != null && (event == null || e.seq < event.seq)) {
+							type = t;
+							event = e;
+						}
+					}
+					if (event == null) {
+						draining = false;
+						return;
+					}
+					pending[type.ordinal()] = null;
+				}
+				try {
+					deliver(type, event.value);
+				} catch (Throwable t) {
+					t.printStackTrace();
+				}
+			}
+		}
+
+		private void deliver(Type type, Object value) {
+			switch (type) {
+				case CHECKER_CHANGED:
+					// reports from the old checker don't count as already shown
+					Arrays.fill(delivered, false);
+					listener.checkerChanged((CheckerCommon) value);
+					break;
+				case PORT_CHECK_START:
+					listener.portCheckStart();
+					break;
+				case PORT_CHECK_STATUS:
+					if (isUnchanged(type, (StatusReport) value)) {
+						return;
+					}
+					listener.portCheckStatusChanged((StatusReport) value);
+					break;
+				case PORT_CHECK_DONE:
+					listener.portCheckDone();
+					break;
+				case PROTOCOL_ADDRESSES:
+					if (isUnchanged(type, (StatusReport) value)) {
+						return;
+					}
+					listener.protocolAddressesStatusChanged((StatusReport) value);
+					break;
+			}
+		}
+
+		/**
+		 * Remembers the report's content as delivered
+		 */
+		private boolean isUnchanged(Type type, StatusReport report) {
+			int hash = report == null ? 0 : report.getText().hashCode();
+			int i = type.ordinal();
+			boolean unchanged = delivered[i] && lastHashes[i] == hash;
+			lastHashes[i] = hash;
+			delivered[i] = true;
+			return unchanged;
+		}
+	}
+}
@@ -18,10 +18,24 @@
 
 package com.vuze.plugin.azVPN_Helper;
 
+/**
+ * Called on a "VPNHelper Events" pool thread, never the SWT thread, one
+ * callback at a time per listener.  Listeners that touch SWT widgets must
+ * hop to the display thread themselves.
+ *
+ * @see CheckerEventBus
+ */
 public interface CheckerListener
 {
 	public void checkerChanged(CheckerCommon checker);
 	public void portCheckStart();
-	public void portCheckStatusChanged(String status);
-	public void protocolAddressesStatusChanged(String status);
+	public void portCheckStatusChanged(StatusReport status);
+	public void protocolAddressesStatusChanged(StatusReport status);
+
+	/**
+	 * Sent when every check ends, even when its status wasn't sent because it
+	 * hadn't changed
+	 */
+	public default void portCheckDone() {
+	}
 }
@@ -18,36 +18,24 @@
 
 package com.vuze.plugin.azVPN_Helper;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import org.apache.http.NameValuePair;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.SystemDefaultDnsResolver;
-import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.util.EntityUtils;
 
 import com.biglybt.core.proxy.AEProxySelector;
 import com.biglybt.core.proxy.AEProxySelectorFactory;
 import com.biglybt.core.util.Constants;
 import com.biglybt.core.util.SystemProperties;
-import com.biglybt.core.util.UrlUtils;
-import com.biglybt.core.xml.simpleparser.SimpleXMLParserDocumentFactory;
+import com.biglybt.core.util.SystemTime;
 import com.biglybt.platform.PlatformManager;
 import com.biglybt.platform.PlatformManagerFactory;
+import com.biglybt.util.JSONUtils;
 import com.biglybt.util.MapUtils;
 
 import com.biglybt.pif.PluginConfig;
@@ -57,46 +45,36 @@ import com.biglybt.pif.ui.config.Parameter;
 import com.biglybt.pif.ui.config.PasswordParameter;
 import com.biglybt.pif.ui.config.StringParameter;
 import com.biglybt.pif.ui.model.BasicPluginConfigModel;
-import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocument;
-import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocumentAttribute;
-import com.biglybt.pif.utils.xml.simpleparser.SimpleXMLParserDocumentNode;
 
 /**
  * AirVPN
  * 
  * https://airvpn.org/
  * 
+ * Ports and sessions come from AirVPN's API (Client Area->API), which needs
+ * an API key.
  */
 @SuppressWarnings("unused")
 public class Checker_AirVPN
 	extends CheckerCommon
 {
+	public static final String CONFIG_AIRVPN_API_KEY = "airvpn.api.key";
 
-	private static final String VPN_DOMAIN = "airvpn.org";
-
-	/*
-	private static final String VPN_LOGIN_URL = "https://" + VPN_DOMAIN
-			+ "/login";
-
-	private static final String VPN_PORTS_URL = "https://" + VPN_DOMAIN
-			+ "/ports/";
-
-	private static final String REGEX_ActionURL = "action=['\"]([^'\"]+)['\"]";
-
-	private static final String REGEX_AuthKey = "name=['\"]csrfKey['\"]\\s*value=['\"]([^\"']+)['\"]";
+	public static final String CONFIG_AIRVPN_API_URL = "airvpn.api.url";
 
-	private static final String REGEX_Port = "class=\"ports_port\"[^>]*>([0-9]+)<";
+	private static final String VPN_DOMAIN = "airvpn.org";
 
-	private static final String REGEX_Token = "name=['\"]csrf_token['\"]\\s*value=['\"]([^\"']+)['\"]";
+	private static final String DEFAULT_API_URL = "https://" + VPN_DOMAIN
+			+ "/api/userinfo/";
 
-	private static final String REGEX_PortForwardedTo = "<td>Forwarded to:</td><td>([0-9]+\\.[0-9]+\\.[0-9]+\\.[0-9]+)</td>";
+	/** Sessions and ports rarely change; don't ask more often than this */
+	private static final long API_CACHE_MS = 60 * 1000L;
 
-	private static final String REGEX_NotConnected = "['\"]Not connected['\"]";
+	private UserInfo cachedUserInfo;
 
-	private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/56.0.2924.87 Safari/537.36";
+	private String cachedUserInfoKey;
 
-	private HttpClientContext httpClientContext;
-	*/
+	private long cachedUserInfoOn;
 
 	public Checker_AirVPN() {
 		super();
@@ -109,93 +87,43 @@ public class Checker_AirVPN
 	// no groups
 	public static List<Parameter> setupConfigModel(PluginInterface pi,
 			BasicPluginConfigModel configModel) {
-		List<Parameter> params = new ArrayList<>(1);
+		List<Parameter> params = new ArrayList<>(3);
 
 		params.add(configModel.addLabelParameter2("airvpn.open.port.howto"));
-		/* Website now requires a real browser, can't scrape :(
-		params.add(configModel.addLabelParameter2("airvpn.login.group.explain"));
-		StringParameter paramUser = configModel.addStringParameter2(
-				PluginConstants.CONFIG_USER, "vpnhelper.config.user", "");
-		params.add(paramUser);
-		PasswordParameter paramPass = configModel.addPasswordParameter2(
-				PluginConstants.CONFIG_P, "vpnhelper.config.pass",
+
+		PasswordParameter paramKey = configModel.addPasswordParameter2(
+				CONFIG_AIRVPN_API_KEY, CONFIG_AIRVPN_API_KEY,
 				PasswordParameter.ET_PLAIN, new byte[] {});
-		params.add(paramPass);
-	 */
+		params.add(paramKey);
+
+		StringParameter paramURL = configModel.addStringParameter2(
+				CONFIG_AIRVPN_API_URL, CONFIG_AIRVPN_API_URL, DEFAULT_API_URL);
+		paramURL.setMinimumRequiredUserMode(StringParameter.MODE_ADVANCED);
+		params.add(paramURL);
 
 		return params;
 	}
 
 	protected String getDefaultUsername() {
 		try {
-			File vpnConfigPath = getVPNConfigPath();
-			if (vpnConfigPath == null) {
-				return "";
-			}
-
-			File fileSettings = new File(vpnConfigPath, "AirVPN.xml");
-			if (!fileSettings.isFile() || !fileSettings.canRead()) {
-				return "";
-			}
-			SimpleXMLParserDocument xml = SimpleXMLParserDocumentFactory.create(
-					fileSettings);
-			SimpleXMLParserDocumentNode options = xml.getChild("options");
-			SimpleXMLParserDocumentNode[] children = options.getChildren();
-
-			Map<String, String> mapOptions = new HashMap<String, String>();
-
-			for (SimpleXMLParserDocumentNode child : children) {
-				SimpleXMLParserDocumentAttribute name = child.getAttribute("name");
-				if (name != null) {
-					SimpleXMLParserDocumentAttribute value = child.getAttribute("value");
-					if (value != null) {
-						mapOptions.put(name.getValue(), value.getValue());
-					}
-				}
-			}
-			String user = MapUtils.getMapString(mapOptions, "login", "");
-
-			return user;
+			return getOptions().getLogin();
 		} catch (Exception e) {
 			PluginVPNHelper.log("Get login name: " + e.toString());
 			return "";
 		}
 	}
 
-	protected String getPassword() {
-		try {
-			File vpnConfigPath = getVPNConfigPath();
-			if (vpnConfigPath == null) {
-				return "";
-			}
-
-			File fileSettings = new File(vpnConfigPath, "AirVPN.xml");
-			if (!fileSettings.isFile() || !fileSettings.canRead()) {
-				return "";
-			}
-			SimpleXMLParserDocument xml = SimpleXMLParserDocumentFactory.create(
-					fileSettings);
-			SimpleXMLParserDocumentNode options = xml.getChild("options");
-			SimpleXMLParserDocumentNode[] children = options.getChildren();
-
-			Map<String, String> mapOptions = new HashMap<String, String>();
-
-			for (SimpleXMLParserDocumentNode child : children) {
-				SimpleXMLParserDocumentAttribute name = child.getAttribute("name");
-				if (name != null) {
-					SimpleXMLParserDocumentAttribute value = child.getAttribute("value");
-					if (value != null) {
-						mapOptions.put(name.getValue(), value.getValue());
-					}
-				}
-			}
-			String pw = MapUtils.getMapString(mapOptions, "password", "");
-
-			return pw;
-		} catch (Exception e) {
-			PluginVPNHelper.log("Get login creds: " + e.toString());
-			return "";
+	/**
+	 * @return Eddie's options, {@link AirVPNOptions#EMPTY} if there's no
+	 * readable AirVPN.xml
+	 */
+	protected AirVPNOptions getOptions()
+			throws Exception {
+		File vpnConfigPath = getVPNConfigPath();
+		if (vpnConfigPath == null) {
+			return AirVPNOptions.EMPTY;
 		}
+		return AirVPNOptions.read(new File(vpnConfigPath, "AirVPN.xml"));
 	}
 
 	@Override
@@ -209,396 +137,234 @@ public class Checker_AirVPN
 	}
 
 	@Override
-	protected Status callRPCforPort(InetAddress bindIP, StringBuilder sReply) {
-		/*
-		InetAddress[] resolve = null;
-		try {
-
-			String user = getDefaultUsername();
-			String pass = null;
-			if (user == null || user.length() == 0) {
-				user = config.getPluginStringParameter(PluginConstants.CONFIG_USER);
-				pass = new String(config.getPluginByteParameter(
-						PluginConstants.CONFIG_P, new byte[0]), "utf-8");
-			} else {
-				pass = getPassword();
-			}
-
-			if (user == null || user.length() == 0 || pass == null
-					|| pass.length() == 0) {
-				addReply(sReply, CHAR_WARN, "airvpn.rpc.nocreds");
-				return new Status(STATUS_ID_WARN);
-			}
-
-			// If Vuze has a proxy set up (Tools->Options->Connection->Proxy), then
-			// we'll need to disable it for the URL
-			AEProxySelector selector = AEProxySelectorFactory.getSelector();
-			if (selector != null) {
-				resolve = SystemDefaultDnsResolver.INSTANCE.resolve(VPN_DOMAIN);
-
-				for (InetAddress address : resolve) {
-					selector.setProxy(new InetSocketAddress(address, 443),
-							Proxy.NO_PROXY);
-				}
-			}
-
-			RequestConfig requestConfig;
-			StringBuffer token = new StringBuffer();
-
-			boolean skipLoginPage = false;
-			boolean alreadyLoggedIn = false;
-			PortInfo[] ports = null;
+	protected Status callRPCforPort(InetAddress bindIP, StatusReport sReply) {
+		if (bindIP == null) {
+			return null;
+		}
 
-			if (httpClientContext == null) {
-				httpClientContext = HttpClientContext.create();
+		String apiKey = getAPIKey();
+		if (apiKey.isEmpty()) {
+			String login = getDefaultUsername();
+			if (login.isEmpty()) {
+				addReply(sReply, CHAR_WARN, "airvpn.api.nokey");
 			} else {
-				PluginVPNHelper.log(
-						"Have existing context.  Trying to grab port list without logging in.");
-				ports = scrapePorts(bindIP, token, sReply);
-				// assume no token means we aren't logged in
-				if (token.length() > 0) {
-					PluginVPNHelper.log("Valid ports page. Skipping Login");
-					skipLoginPage = true;
-					alreadyLoggedIn = true;
-
-					if (ports == null) {
-						return new Status(STATUS_ID_WARN);
-					}
-				} else {
-					ports = null;
-				}
+				// The AirVPN app is logged in; the key has to be for that account
+				addReply(sReply, CHAR_WARN, "airvpn.api.nokey.login", login);
 			}
+			return new Status(STATUS_ID_WARN, "vpnhelper.indicator.noport");
+		}
 
-			if (!skipLoginPage) {
-				String loginURL = null;
-				String authKey = null;
-
-				PluginVPNHelper.log("Getting Login post URL and auth_key");
-
-				HttpGet getLoginPage = new HttpGet(VPN_LOGIN_URL);
-				requestConfig = RequestConfig.custom().setLocalAddress(
-						bindIP).setConnectTimeout(15000).build();
-				getLoginPage.setConfig(requestConfig);
-				getLoginPage.setHeader("User-Agent", USER_AGENT);
-
-				CloseableHttpClient httpClientLoginPage = HttpClients.createDefault();
-				CloseableHttpResponse loginPageResponse = httpClientLoginPage.execute(
-						getLoginPage, httpClientContext);
-
-				BufferedReader rd = new BufferedReader(
-						new InputStreamReader(loginPageResponse.getEntity().getContent()));
-
-				Pattern patAuthKey = Pattern.compile(REGEX_AuthKey);
-
-				String line = "";
-				while ((line = rd.readLine()) != null) {
-					if (line.contains("<form")
-							&& line.contains("core.global.core.login")) {
-						Matcher matcher = Pattern.compile(REGEX_ActionURL).matcher(line);
-						if (matcher.find()) {
-							loginURL = matcher.group(1);
-							if (authKey != null) {
-								break;
-							}
-						}
-					}
-					Matcher matcherAuthKey = patAuthKey.matcher(line);
-					if (matcherAuthKey.find()) {
-						authKey = matcherAuthKey.group(1);
-						if (loginURL != null) {
-							break;
-						}
-					}
-
-					if (line.contains("['member_id']")
-							&& line.matches(".*parseInt\\s*\\(\\s*[1-9][0-9]*\\s*.*")) {
-						alreadyLoggedIn = true;
-					}
-				}
-				rd.close();
-
-				if (loginURL == null) {
-					PluginVPNHelper.log("Could not scrape Login URL.  Using default");
-					loginURL = "https://airvpn.org/login/";
-				}
-				if (authKey == null) {
-					addReply(sReply, CHAR_WARN, "vpnhelper.rpc.noauthkey");
-					return new Status(STATUS_ID_WARN);
-				}
-
-				loginURL = UrlUtils.unescapeXML(loginURL);
-
-				///////////////////////////////
-
-				if (alreadyLoggedIn) {
-					PluginVPNHelper.log("Already Logged In");
-				} else {
-					PluginVPNHelper.log("Login URL:" + loginURL);
-
-					HttpPost httpPostLogin = new HttpPost(loginURL);
-
-					requestConfig = RequestConfig.custom().setLocalAddress(
-							bindIP).setConnectTimeout(15000).build();
-
-					httpPostLogin.setConfig(requestConfig);
-					httpPostLogin.setHeader("User-Agent", USER_AGENT);
-
-					CloseableHttpClient httpClient = HttpClients.createDefault();
-
-					List<NameValuePair> urlParameters = new ArrayList<NameValuePair>();
-					urlParameters.add(new BasicNameValuePair("auth", user));
-					urlParameters.add(new BasicNameValuePair("password", pass));
-					urlParameters.add(new BasicNameValuePair("csrfKey", authKey));
-					urlParameters.add(
-							new BasicNameValuePair("_processLogin", "usernamepassword"));
-					urlParameters.add(new BasicNameValuePair("anonymous", "1"));
-					urlParameters.add(new BasicNameValuePair("remember_me", "1"));
+		UserInfo userInfo;
+		try {
+			userInfo = getUserInfo(bindIP, apiKey);
+		} catch (Throwable t) {
+			t.printStackTrace();
+			addReply(sReply, CHAR_BAD, "vpnhelper.rpc.no.connect",
+					bindIP + ": " + t.getMessage());
+			return new Status(STATUS_ID_WARN);
+		}
 
-					httpPostLogin.setEntity(new UrlEncodedFormEntity(urlParameters));
+		if (userInfo.error != null) {
+			addReply(sReply, CHAR_WARN, "airvpn.api.error", userInfo.error);
+			return new Status(STATUS_ID_WARN);
+		}
 
-					CloseableHttpResponse response = httpClient.execute(httpPostLogin,
-							httpClientContext);
+		boolean ourSession = userInfo.sessionVPNIPs.contains(
+				bindIP.getHostAddress());
+		if (ourSession) {
+			addReply(sReply, CHAR_GOOD, "airvpn.session.found",
+					bindIP.getHostAddress());
+		} else {
+			addReply(sReply, CHAR_WARN, "airvpn.session.notfound",
+					bindIP.getHostAddress(), userInfo.sessionVPNIPs.toString());
+		}
 
-					rd = new BufferedReader(
-							new InputStreamReader(response.getEntity().getContent()));
+		if (userInfo.ports.isEmpty()) {
+			addReply(sReply, CHAR_WARN, "airvpn.no.ports");
+			return new Status(STATUS_ID_WARN, "vpnhelper.indicator.noport");
+		}
 
-					line = "";
-					while ((line = rd.readLine()) != null) {
-					}
+		// Keep the current port if it's one of ours, otherwise take the first
+		int port = userInfo.ports.get(0);
+		int coreTCPPort = config.getCoreIntParameter(
+				PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT);
+		if (userInfo.ports.contains(coreTCPPort)) {
+			port = coreTCPPort;
+		}
+		addReply(sReply, CHAR_GOOD, "vpnhelper.port.from.rpc",
+				Integer.toString(port));
+		changePort(port, sReply);
 
-					PluginVPNHelper.log(
-							"Login Result: " + response.getStatusLine().toString());
-				}
-			}
+		return new Status(ourSession ? STATUS_ID_OK : STATUS_ID_WARN);
+	}
 
-			////////////////////////////
+	private String getAPIKey() {
+		try {
+			return new String(config.getPluginByteParameter(CONFIG_AIRVPN_API_KEY,
+					new byte[0]), "utf-8").trim();
+		} catch (Exception e) {
+			return "";
+		}
+	}
 
-			if (ports == null) {
-				ports = scrapePorts(bindIP, token, sReply);
-				if (ports == null && token.length() > 0) {
-					addReply(sReply, CHAR_WARN, "airvpn.vpnhelper.rpc.notconnected");
-					return new Status(STATUS_ID_WARN);
-				}
+	/**
+	 * @return Cached result if we asked recently with the same key and binding
+	 */
+	UserInfo getUserInfo(InetAddress bindIP, String apiKey)
+			throws Exception {
+		String url = config.getPluginStringParameter(CONFIG_AIRVPN_API_URL,
+				DEFAULT_API_URL);
+		if (url == null || url.trim().isEmpty()) {
+			url = DEFAULT_API_URL;
+		}
+		String cacheKey = url + "|" + apiKey + "|" + bindIP;
+		long now = SystemTime.getMonotonousTime();
+		synchronized (this) {
+			if (cachedUserInfo != null && cacheKey.equals(cachedUserInfoKey)
+					&& now - cachedUserInfoOn < API_CACHE_MS) {
+				return cachedUserInfo;
 			}
+		}
 
-			PluginVPNHelper.log("Found Ports: " + Arrays.toString(ports));
-
-			int existingIndex = ourPortInList(ports);
-			if (existingIndex >= 0) {
-				addReply(sReply, CHAR_GOOD, "vpnhelper.port.from.rpc.match",
-						new String[] {
-							ports[existingIndex].port
-						});
-				return new Status(STATUS_ID_OK);
+		URI uri = new URIBuilder(url.trim()).addParameter("format",
+				"json").build();
+		String json = fetch(bindIP, uri, apiKey);
+		UserInfo userInfo = parseUserInfo(json);
+		if (userInfo == null) {
+			userInfo = new UserInfo();
+			userInfo.error = json.length() > 200 ? json.substring(0, 200) : json;
+		} else if (userInfo.error == null) {
+			synchronized (this) {
+				cachedUserInfo = userInfo;
+				cachedUserInfoKey = cacheKey;
+				cachedUserInfoOn = now;
 			}
+		}
+		return userInfo;
+	}
 
-			boolean gotPort = false;
-
-			// There's a limit of 20 ports.  If [0] isn't ours and 20 of them are
-			// created, then assume our detection of "ours" is broke and just use
-			// the first one
-			if (ports != null && ((ports.length > 0 && ports[0].ourBinding)
-					|| ports.length == 20)) {
-				int port = Integer.parseInt(ports[0].port);
-				gotPort = true;
-
-				addReply(sReply, CHAR_GOOD, "vpnhelper.port.from.rpc", new String[] {
-					Integer.toString(port)
-				});
-
-				changePort(port, sReply);
-			} else if (ports != null) {
-				// create port
-				ports = createPort(bindIP, token, sReply);
-				if (ports.length == 0) {
-					// form post should have got the new port, but if it didn't, try
-					// reloading the ports page again.
-					token.setLength(0);
-					ports = scrapePorts(bindIP, token, sReply);
-				}
-
-				PluginVPNHelper.log("Added a port. Ports: " + Arrays.toString(ports));
-
-				existingIndex = ourPortInList(ports);
-				if (existingIndex >= 0) {
-					addReply(sReply, CHAR_GOOD, "vpnhelper.port.from.rpc.match",
-							new String[] {
-								ports[existingIndex].port
-							});
-					return new Status(STATUS_ID_OK);
-				}
-
-				if ((ports.length > 0 && ports[0].ourBinding) || ports.length == 20) {
-					int port = Integer.parseInt(ports[0].port);
-					gotPort = true;
-
-					addReply(sReply, CHAR_GOOD, "vpnhelper.port.from.rpc", new String[] {
-						Integer.toString(port)
-					});
+	private String fetch(InetAddress bindIP, URI uri, String apiKey)
+			throws Exception {
+		InetAddress[] resolve = null;
+		String host = uri.getHost();
+		int port = uri.getPort() > 0 ? uri.getPort()
+				: "http".equals(uri.getScheme()) ? 80 : 443;
+		try {
+			// If BiglyBT has a proxy set up (Tools->Options->Connection->Proxy),
+			// then we'll need to disable it for the URL
+			AEProxySelector selector = AEProxySelectorFactory.getSelector();
+			if (selector != null) {
+				resolve = CachingDnsResolver.get().resolve(host);
 
-					changePort(port, sReply);
+				for (InetAddress address : resolve) {
+					selector.setProxy(new InetSocketAddress(address, port),
+							Proxy.NO_PROXY);
 				}
-
 			}
 
-			if (!gotPort) {
-				addReply(sReply, CHAR_WARN, "vpnhelper.rpc.no.connect", new String[] {
-					bindIP.toString()
-				});
-
-				return new Status(STATUS_ID_WARN);
+			HttpGet get = new HttpGet(uri);
+			// Key goes in a header, so it doesn't end up in server logs
+			get.setHeader("API-KEY", apiKey);
+			get.setConfig(RequestConfig.custom().setLocalAddress(
+					bindIP).setConnectTimeout(15000).setSocketTimeout(15000).build());
+
+			CloseableHttpResponse response = httpClients.get(bindIP).execute(get);
+			try {
+				return EntityUtils.toString(response.getEntity(), "utf8");
+			} finally {
+				response.close();
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
-			addReply(sReply, CHAR_BAD, "vpnhelper.rpc.no.connect", new String[] {
-				bindIP + ": " + e.getMessage()
-			});
-
-			return new Status(STATUS_ID_WARN);
 		} finally {
 			AEProxySelector selector = AEProxySelectorFactory.getSelector();
 			if (selector != null && resolve != null) {
 				for (InetAddress address : resolve) {
-					AEProxySelectorFactory.getSelector().removeProxy(
-							new InetSocketAddress(address, 443));
+					selector.removeProxy(new InetSocketAddress(address, port));
 				}
 			}
 		}
-			 */
-		return new Status(STATUS_ID_OK);
-	}
-
-	/*
-	private PortInfo[] createPort(InetAddress bindIP, StringBuffer token,
-			StringBuilder sReply)
-			throws ClientProtocolException, IOException {
-		HttpPost httpPostCreatePort = new HttpPost(VPN_PORTS_URL);
-
-		RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
-				bindIP).setConnectTimeout(15000).build();
-
-		httpPostCreatePort.setConfig(requestConfig);
-		httpPostCreatePort.setHeader("User-Agent", USER_AGENT);
-
-		CloseableHttpClient httpClientCreatPort = HttpClients.createDefault();
-
-		List<NameValuePair> urlParamsAddPort = new ArrayList<NameValuePair>();
-		urlParamsAddPort.add(
-				new BasicNameValuePair("csrf_token", token.toString()));
-		urlParamsAddPort.add(new BasicNameValuePair("action", "ports_ins"));
-		urlParamsAddPort.add(new BasicNameValuePair("ports_ins_port", ""));
-		urlParamsAddPort.add(new BasicNameValuePair("ports_ins_protocol", "both"));
-		urlParamsAddPort.add(new BasicNameValuePair("ports_ins_local", ""));
-		urlParamsAddPort.add(new BasicNameValuePair("ports_ins_dns_name", ""));
-		urlParamsAddPort.add(new BasicNameValuePair("ports_ins", "ports_ins"));
-
-		UrlEncodedFormEntity entity = new UrlEncodedFormEntity(urlParamsAddPort);
-		httpPostCreatePort.setEntity(entity);
-
-		CloseableHttpResponse responseCreatePort = httpClientCreatPort.execute(
-				httpPostCreatePort, httpClientContext);
-		BufferedReader rd = new BufferedReader(
-				new InputStreamReader(responseCreatePort.getEntity().getContent()));
-
-		String bindIPString = bindIP == null ? null : bindIP.getHostAddress();
-
-		PortInfo[] ports = parsePorts(rd, bindIPString, token, sReply);
-		rd.close();
-
-		return ports;
-	}
-
-	private PortInfo[] scrapePorts(InetAddress bindIP, StringBuffer token,
-			StringBuilder sReply)
-			throws ClientProtocolException, IOException {
-		String bindIPString = bindIP == null ? null : bindIP.getHostAddress();
-		HttpGet getPortsPage = new HttpGet(VPN_PORTS_URL);
-		RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
-				bindIP).setConnectTimeout(15000).build();
-		getPortsPage.setConfig(requestConfig);
-		getPortsPage.setHeader("User-Agent", USER_AGENT);
-
-		CloseableHttpClient httpClientPortsPage = HttpClients.createDefault();
-		CloseableHttpResponse portsPageResponse = httpClientPortsPage.execute(
-				getPortsPage, httpClientContext);
-
-		BufferedReader rd = new BufferedReader(
-				new InputStreamReader(portsPageResponse.getEntity().getContent()));
-
-		PortInfo[] ports = parsePorts(rd, bindIPString, token, sReply);
-
-		rd.close();
-
-		return ports;
 	}
 
-	private PortInfo[] parsePorts(BufferedReader rd, String bindIPString,
-			StringBuffer token, StringBuilder sReply)
-			throws IOException {
-		Pattern patPort = Pattern.compile(REGEX_Port);
-		Pattern patToken = Pattern.compile(REGEX_Token);
-		Pattern patFwdToIP = Pattern.compile(REGEX_PortForwardedTo);
-		Pattern patNotConnected = Pattern.compile(REGEX_NotConnected);
-
-		Map<String, PortInfo> mapPorts = new HashMap<String, PortInfo>();
-
-		String line = "";
-		String lastPortFound = null;
-		while ((line = rd.readLine()) != null) {
-			Matcher matcher = patPort.matcher(line);
-			boolean found = matcher.find();
-			if (found) {
-				while (found) {
-					lastPortFound = matcher.group(1);
-					mapPorts.put(lastPortFound, new PortInfo(lastPortFound, false));
-
-					Matcher matcherFwdToIP = patFwdToIP.matcher(line);
-					while (matcherFwdToIP.find()) {
-						String ip = matcherFwdToIP.group(1);
-						if (ip.equals(bindIPString)) {
-							mapPorts.put(lastPortFound, new PortInfo(lastPortFound, true));
-						}
-					}
+	/**
+	 * Pull the session addresses and forwarded ports out of a userinfo reply.
+	 * Unknown fields are ignored, and ports may be plain numbers or objects
+	 * with a "port" (or "number") and optional "enabled".
+	 *
+	 * @return null if json isn't a JSON object
+	 */
+	static UserInfo parseUserInfo(String json) {
+		if (json == null || !json.trim().startsWith("{")) {
+			return null;
+		}
+		Map<?, ?> map = JSONUtils.decodeJSON(json);
+		if (map == null) {
+			return null;
+		}
+		UserInfo userInfo = new UserInfo();
 
-					found = matcher.find();
-				}
-			} else {
-				if (lastPortFound != null) {
-					Matcher matcherFwdToIP = patFwdToIP.matcher(line);
-					while (matcherFwdToIP.find()) {
-						String ip = matcherFwdToIP.group(1);
-						if (ip.equals(bindIPString)) {
-							mapPorts.put(lastPortFound, new PortInfo(lastPortFound, true));
-						}
-					}
+		List<?> sessions = MapUtils.getMapList(map, "sessions",
+				Collections.emptyList());
+		for (Object o : sessions) {
+			if (!(o instanceof Map)) {
+				continue;
+			}
+			Map<?, ?> session = (Map<?, ?>) o;
+			for (String key : new String[] {
+				"vpn_ipv4",
+				"vpn_ip",
+				"vpn_ipv6"
+			}) {
+				String ip = MapUtils.getMapString(session, key, null);
+				if (ip != null && !ip.isEmpty()) {
+					userInfo.sessionVPNIPs.add(ip);
 				}
 			}
+		}
 
-			if (token != null && token.length() == 0) {
-				Matcher matcherToken = patToken.matcher(line);
-				if (matcherToken.find()) {
-					token.append(matcherToken.group(1));
+		List<?> ports = MapUtils.getMapList(map, "ports", null);
+		if (ports == null) {
+			ports = MapUtils.getMapList(
+					MapUtils.getMapMap(map, "user", Collections.emptyMap()), "ports",
+					Collections.emptyList());
+		}
+		for (Object o : ports) {
+			int port = 0;
+			if (o instanceof Number) {
+				port = ((Number) o).intValue();
+			} else if (o instanceof String) {
+				try {
+					port = Integer.parseInt(((String) o).trim());
+				} catch (NumberFormatException ignore) {
+				}
+			} else if (o instanceof Map) {
+				Map<?, ?> mapPort = (Map<?, ?>) o;
+				if (Boolean.FALSE.equals(mapPort.get("enabled"))) {
+					continue;
+				}
+				Object oPort = mapPort.containsKey("port") ? mapPort.get("port")
+						: mapPort.get("number");
+				if (oPort instanceof Number) {
+					port = ((Number) oPort).intValue();
+				} else if (oPort instanceof String) {
+					try {
+						port = Integer.parseInt(((String) oPort).trim());
+					} catch (NumberFormatException ignore) {
+					}
 				}
 			}
-
-			Matcher matcherNC = patNotConnected.matcher(line);
-			if (matcherNC.find()) {
-				addReply(sReply, CHAR_WARN, "airvpn.vpnhelper.rpc.notconnected");
-				return null;
+			if (port > 0 && port < 65536) {
+				userInfo.ports.add(port);
 			}
 		}
 
-		PortInfo[] array = mapPorts.values().toArray(new PortInfo[0]);
-		Arrays.sort(array, new Comparator<PortInfo>() {
-			@Override
-			public int compare(PortInfo x, PortInfo y) {
-				return Boolean.valueOf(x.ourBinding).compareTo(
-						Boolean.valueOf(y.ourBinding));
-			}
-		});
-		return array;
+		if (sessions.isEmpty() && userInfo.ports.isEmpty()
+				&& !map.containsKey("user")) {
+			// {"result":"Not authorized."} and the like
+			Object result = map.containsKey("error") ? map.get("error")
+					: map.get("result");
+			userInfo.error = result == null ? json : result.toString();
+		}
+		return userInfo;
 	}
-	 */
 
 	protected File getVPNConfigPath() {
 		PlatformManager platformManager = PlatformManagerFactory.getPlatformManager();
@@ -644,66 +410,25 @@ public class Checker_AirVPN
 		return null;
 	}
 
-	private int ourPortInList(PortInfo[] ports) {
-		if (ports == null) {
-			return -1;
-		}
-		PluginConfig pluginConfig = pi.getPluginconfig();
-		int coreTCPPort = pluginConfig.getCoreIntParameter(
-				PluginConfig.CORE_PARAM_INT_INCOMING_TCP_PORT);
-		int coreUDPPort = pluginConfig.getCoreIntParameter(
-				PluginConfig.CORE_PARAM_INT_INCOMING_UDP_PORT);
-		if (coreTCPPort != coreUDPPort) {
-			return -1;
-		}
-
-		boolean skipIfNotOurBinding = ports.length != 20;
-
-		String sPort = Integer.toString(coreUDPPort);
-		for (int i = 0; i < ports.length; i++) {
-			PortInfo portInfo = ports[i];
-			if (!portInfo.ourBinding && skipIfNotOurBinding) {
-				return -1;
-			}
-			if (portInfo.port.equals(sPort)) {
-				return i;
-			}
-		}
-		return -1;
-	}
-
-	public static void main(String[] args) {
-		Checker_AirVPN checker = new Checker_AirVPN();
-		File vpnConfigPath = checker.getVPNConfigPath();
-		System.out.println(vpnConfigPath);
-		String defaultUsername = checker.getDefaultUsername();
-		System.out.println("user=" + defaultUsername + "/" + checker.getPassword());
-
-		checker.callRPCforPort(null, new StringBuilder());
+	public boolean showLoginConfig() {
+		return getAPIKey().isEmpty();
 	}
 
-	private static class PortInfo
+	static class UserInfo
 	{
-		String port;
+		/** VPN side addresses of connected sessions */
+		final List<String> sessionVPNIPs = new ArrayList<>();
 
-		boolean ourBinding;
+		/** Enabled forwarded ports */
+		final List<Integer> ports = new ArrayList<>();
 
-		public PortInfo(String port, boolean ourBinding) {
-			super();
-			this.port = port;
-			this.ourBinding = ourBinding;
-		}
+		/** Set when the API refused the request */
+		String error;
 
-		/* (non-Javadoc)
-		 * @see java.lang.Object#toString()
-		 */
 		@Override
 		public String toString() {
-			return port + ";" + ourBinding;
+			return error != null ? "error: " + error
+					: "sessions " + sessionVPNIPs + ", ports " + ports;
 		}
 	}
-
-	public boolean showLoginConfig() {
-		return getDefaultUsername().length() == 0;
-	}
 }
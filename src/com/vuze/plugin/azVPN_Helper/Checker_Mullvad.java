@@ -30,16 +30,19 @@ import java.util.regex.Pattern;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 
 import com.biglybt.core.util.Constants;
 import com.biglybt.core.util.FileUtil;
 import com.biglybt.core.util.SystemProperties;
+import com.biglybt.core.util.SystemTime;
 import com.biglybt.util.JSONUtils;
 import com.biglybt.util.MapUtils;
 
 import com.biglybt.pif.PluginInterface;
+import com.biglybt.pif.config.ConfigParameter;
+import com.biglybt.pif.config.ConfigParameterListener;
+import com.biglybt.pif.ui.config.BooleanParameter;
 import com.biglybt.pif.ui.config.Parameter;
 import com.biglybt.pif.ui.config.StringParameter;
 import com.biglybt.pif.ui.model.BasicPluginConfigModel;
@@ -55,47 +58,137 @@ import com.biglybt.pif.ui.model.BasicPluginConfigModel;
  */
 public class Checker_Mullvad
 	extends CheckerCommon
+	implements ConfigParameterListener
 {
 	private static final String CONFIG_MULLVAD_ACCOUNT = "mullvad.account.id";
 
+	private static final String CONFIG_MULLVAD_USE_CLI = "mullvad.use.cli";
+
+	private static final Pattern PATTERN_ACCOUNT_ID = Pattern.compile(
+			"^\\s*id\\s*=\\s*([0-9]+)\\s*$", Pattern.MULTILINE);
+
+	private static final Pattern PATTERN_IPV4 = Pattern.compile(
+			"\\b([0-9]{1,3}(?:\\.[0-9]{1,3}){3})\\b");
+
+	/**
+	 * While the CLI is following the connection, the account (and its ports)
+	 * only needs asking for again after a reconnect, or this long
+	 */
+	private static final long ACCOUNT_CACHE_MS = 10 * 60 * 1000L;
+
+	private static final long CLI_READY_TIMEOUT_MS = 5000;
+
+	/** Connecting/Connected (and the like) come in quick pairs */
+	private static final long CLI_EVENT_SETTLE_MS = 1000;
+
+	private static final long CLI_EVENT_SETTLE_MAX_MS = 5000;
+
+	private static String cachedAccountID;
+
+	private static String cachedAccountIDKey;
+
+	private static BooleanParameter paramUseCLI;
+
+	private ProcessSupervisor cliSupervisor;
+
+	private final Object cliLock = new Object();
+
+	private final Debouncer cliEventDebouncer;
+
+	private volatile String cliState = "";
+
+	private volatile String cliTunnelIP;
+
+	/** Why the CLI isn't being followed, when it should be; null if it is */
+	private volatile String cliStartError;
+
+	private volatile boolean cliNotFound;
+
+	private String cachedAccountJSON;
+
+	private String cachedAccountJSONKey;
+
+	private long cachedAccountJSONOn;
+
 	public Checker_Mullvad(PluginInterface pi) {
 		super(pi);
+		cliEventDebouncer = new Debouncer(scheduler, CLI_EVENT_SETTLE_MS,
+				CLI_EVENT_SETTLE_MAX_MS, new Runnable() {
+					@Override
+					public void run() {
+						// Targeted: rescan interfaces, and re-ask for the port only
+						// because the connection changed
+						NetworkSnapshot.invalidate();
+						expireRPCLease();
+						portBindingCheck();
+					}
+				});
+		paramUseCLI.addConfigParameterListener(this);
+		if (paramUseCLI.getValue()) {
+			startCLI();
+		}
 	}
 
 	public static List<Parameter> setupConfigModel(PluginInterface pi,
 			BasicPluginConfigModel configModel) {
-		List<Parameter> params = new ArrayList<>(1);
+		List<Parameter> params = new ArrayList<>(2);
 		StringParameter paramAccount = configModel.addStringParameter2(
 				CONFIG_MULLVAD_ACCOUNT, CONFIG_MULLVAD_ACCOUNT, getAccountID());
 		params.add(paramAccount);
 
+		paramUseCLI = configModel.addBooleanParameter2(
+				CONFIG_MULLVAD_USE_CLI, CONFIG_MULLVAD_USE_CLI, true);
+		params.add(paramUseCLI);
+
 		return params;
 	}
 
+	/**
+	 * @return Account id from settings.ini, re-read only when the file changes
+	 */
 	private static String getAccountID() {
 		File vpnConfigPath = getVPNConfigPath();
 		if (vpnConfigPath == null) {
 			return "";
 		}
 		File fSettings = new File(vpnConfigPath, "settings.ini");
+		String key = fSettings.getAbsolutePath() + "|" + fSettings.length() + "|"
+				+ fSettings.lastModified();
 
-		try {
-			String settings = FileUtil.readFileAsString(fSettings, 65535);
-
-			Pattern pattern = Pattern.compile("^\\s*id\\s*=\\s*([0-9]+)\\s*$",
-					Pattern.MULTILINE);
-			Matcher matcher = pattern.matcher(settings);
-			if (matcher.find()) {
-				return matcher.group(1);
+		synchronized (Checker_Mullvad.class) {
+			if (key.equals(cachedAccountIDKey)) {
+				return cachedAccountID;
 			}
+		}
+
+		String id = "";
+		try {
+			id = parseAccountID(FileUtil.readFileAsString(fSettings, 65535));
 		} catch (IOException e) {
 		}
 
+		synchronized (Checker_Mullvad.class) {
+			cachedAccountID = id;
+			cachedAccountIDKey = key;
+		}
+		return id;
+	}
+
+	/**
+	 * @return Account id from the contents of settings.ini, or ""
+	 */
+	static String parseAccountID(String settings) {
+		Matcher matcher = PATTERN_ACCOUNT_ID.matcher(settings);
+		if (matcher.find()) {
+			return matcher.group(1);
+		}
 		return "";
 	}
 
 	@Override
-	protected Status callRPCforPort(InetAddress bindIP, StringBuilder sReply) {
+	protected Status callRPCforPort(InetAddress bindIP, StatusReport sReply) {
+		reportCLI(sReply);
+
 		if (bindIP == null) {
 			return null;
 		}
@@ -113,18 +206,7 @@ public class Checker_Mullvad
 		try {
 			boolean gotPort = false;
 
-			HttpGet getLoginPage = new HttpGet(
-					"https://api.mullvad.net/www/accounts/" + id + "/");
-			RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
-					vpnIP).setConnectTimeout(15000).build();
-			getLoginPage.setConfig(requestConfig);
-
-			CloseableHttpClient httpClientLoginPage = HttpClients.createDefault();
-			CloseableHttpResponse loginPageResponse = httpClientLoginPage.execute(
-					getLoginPage);
-
-			String s = FileUtil.readInputStreamAsString(
-					loginPageResponse.getEntity().getContent(), -1, "utf8");
+			String s = getAccountJSON(bindIP, id);
 
 			if (s.startsWith("{")) {
 				Map map = JSONUtils.decodeJSON(s);
@@ -153,6 +235,9 @@ public class Checker_Mullvad
 			}
 
 			if (!gotPort) {
+				synchronized (this) {
+					cachedAccountJSON = null;
+				}
 				addReply(sReply, CHAR_WARN, "vpnhelper.rpc.bad", s);
 
 				return new Status(STATUS_ID_WARN);
@@ -167,6 +252,232 @@ public class Checker_Mullvad
 		return new Status(STATUS_ID_OK);
 	}
 
+	/**
+	 * Account JSON from Mullvad's API.  Reused while the CLI is following the
+	 * connection and nothing changed, so a check usually costs no request.
+	 */
+	private String getAccountJSON(InetAddress bindIP, String id)
+			throws Exception {
+		String cacheKey = id + "|" + bindIP;
+		long now = SystemTime.getMonotonousTime();
+		boolean following = isCLIFollowing();
+		synchronized (this) {
+			if (following && cachedAccountJSON != null
+					&& cacheKey.equals(cachedAccountJSONKey)
+					&& now - cachedAccountJSONOn < ACCOUNT_CACHE_MS) {
+				PluginVPNHelper.log("Using cached Mullvad account info");
+				return cachedAccountJSON;
+			}
+		}
+
+		HttpGet getLoginPage = new HttpGet(
+				"https://api.mullvad.net/www/accounts/" + id + "/");
+		RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
+				bindIP).setConnectTimeout(15000).setSocketTimeout(15000).build();
+		getLoginPage.setConfig(requestConfig);
+
+		CloseableHttpResponse loginPageResponse = httpClients.get(
+				bindIP).execute(getLoginPage);
+		String s;
+		try {
+			s = EntityUtils.toString(loginPageResponse.getEntity(), "utf8");
+		} finally {
+			loginPageResponse.close();
+		}
+
+		synchronized (this) {
+			cachedAccountJSON = s;
+			cachedAccountJSONKey = cacheKey;
+			cachedAccountJSONOn = now;
+		}
+		return s;
+	}
+
+	private boolean isCLIFollowing() {
+		synchronized (cliLock) {
+			return cliSupervisor != null && cliSupervisor.isRunning();
+		}
+	}
+
+	/**
+	 * Start following "mullvad status listen".  Doesn't wait for the first
+	 * line; a state change found there triggers a check of its own.
+	 */
+	private void startCLI() {
+		ProcessSupervisor supervisor;
+		synchronized (cliLock) {
+			supervisor = cliSupervisor;
+			if (supervisor == null) {
+				File fileCLI = getCLIPath();
+				cliNotFound = fileCLI == null;
+				if (fileCLI == null) {
+					return;
+				}
+				supervisor = new ProcessSupervisor("mullvad status listen",
+						new String[] {
+							fileCLI.getAbsolutePath(),
+							"status",
+							"listen"
+						}, scheduler, this::processCLI);
+				cliSupervisor = supervisor;
+			}
+		}
+
+		try {
+			supervisor.start(0);
+			cliStartError = null;
+		} catch (IOException e) {
+			cliStartError = e.toString();
+			PluginVPNHelper.log("mullvad status listen: " + cliStartError);
+		}
+	}
+
+	private void reportCLI(StatusReport sReply) {
+		if (!paramUseCLI.getValue()) {
+			return;
+		}
+		if (cliNotFound) {
+			addReply(sReply, CHAR_WARN, "mullvad.cli.not.found");
+			return;
+		}
+		String error = cliStartError;
+		if (error != null) {
+			addReply(sReply, CHAR_WARN, "vpnhelper.rpc.no.connect",
+					"mullvad: " + error);
+			return;
+		}
+		ProcessSupervisor supervisor;
+		synchronized (cliLock) {
+			supervisor = cliSupervisor;
+		}
+		if (supervisor != null) {
+			addReply(sReply, CHAR_GOOD, "mullvad.cli.state",
+					cliState.isEmpty() ? "?" : cliState,
+					Integer.toString(supervisor.getRestartCount()));
+		}
+	}
+
+	private void stopCLI() {
+		cliEventDebouncer.cancel();
+		synchronized (cliLock) {
+			if (cliSupervisor != null) {
+				cliSupervisor.stop();
+				cliSupervisor = null;
+			}
+			cliState = "";
+			cliTunnelIP = null;
+		}
+	}
+
+	/**
+	 * One line of "mullvad status listen", like "Connected to se-got-wg-001 in
+	 * Gothenburg, Sweden" or "Disconnected".  Verbose output may add the
+	 * tunnel address.
+	 */
+	private void processCLI(String line) {
+		String state = parseCLIState(line);
+		String tunnelIP = parseCLITunnelIP(line);
+		if (state == null && tunnelIP == null) {
+			return;
+		}
+		boolean changed = false;
+		if (state != null && !state.equals(cliState)) {
+			PluginVPNHelper.log("Mullvad state: " + line);
+			cliState = state;
+			changed = state.equals("Connected") || state.equals("Disconnected")
+					|| state.equals("Blocked") || state.equals("Error");
+		}
+		if (tunnelIP != null && !tunnelIP.equals(cliTunnelIP)) {
+			PluginVPNHelper.log("Mullvad tunnel address: " + tunnelIP);
+			cliTunnelIP = tunnelIP;
+			changed = true;
+		}
+		if (changed) {
+			synchronized (this) {
+				cachedAccountJSON = null;
+			}
+			cliEventDebouncer.trigger();
+		}
+	}
+
+	/**
+	 * @return "Connected", "Connecting", "Disconnected", "Disconnecting",
+	 * "Blocked", "Error", or null if the line isn't a state
+	 */
+	static String parseCLIState(String line) {
+		String trimmed = line.trim();
+		for (String state : new String[] {
+			"Disconnected",
+			"Disconnecting",
+			"Connected",
+			"Connecting",
+			"Blocked",
+			"Error"
+		}) {
+			if (trimmed.regionMatches(true, 0, state, 0, state.length())) {
+				return state;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return IPv4 address from a line about the tunnel, or null
+	 */
+	static String parseCLITunnelIP(String line) {
+		if (!line.toLowerCase(Locale.US).contains("tunnel")) {
+			return null;
+		}
+		Matcher matcher = PATTERN_IPV4.matcher(line);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	private static File getCLIPath() {
+		List<String> candidates = new ArrayList<>(3);
+		if (Constants.isWindows) {
+			String programFiles = SystemProperties.getEnvironmentalVariable(
+					"ProgramFiles");
+			if (programFiles != null && programFiles.length() > 0) {
+				candidates.add(programFiles + "\\Mullvad VPN\\resources\\mullvad.exe");
+			}
+		} else if (Constants.isOSX) {
+			candidates.add("/Applications/Mullvad VPN.app/Contents/Resources/mullvad");
+			candidates.add("/usr/local/bin/mullvad");
+		} else {
+			candidates.add("/usr/bin/mullvad");
+			candidates.add("/usr/local/bin/mullvad");
+		}
+		for (String candidate : candidates) {
+			File file = new File(candidate);
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void destroy() {
+		paramUseCLI.removeConfigParameterListener(this);
+		stopCLI();
+		super.destroy();
+	}
+
+	@Override
+	public void configParameterChanged(ConfigParameter param) {
+		if (paramUseCLI.getValue()) {
+			startCLI();
+		} else {
+			stopCLI();
+		}
+		// account cache is only trusted while the CLI is following
+		synchronized (this) {
+			cachedAccountJSON = null;
+		}
+		expireRPCLease();
+		portBindingCheck();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.vuze.plugin.azVPN_Helper.CheckerCommon#canReach(java.net.InetAddress)
 	 */
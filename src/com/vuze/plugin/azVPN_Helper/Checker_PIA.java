@@ -28,9 +28,6 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.http.message.BasicNameValuePair;
 
 import com.biglybt.core.proxy.AEProxySelector;
@@ -46,7 +43,6 @@ import com.biglybt.pif.config.ConfigParameterListener;
 import com.biglybt.pif.ui.config.*;
 import com.biglybt.pif.ui.model.BasicPluginConfigModel;
 import com.biglybt.pif.utils.LocaleUtilities;
-import com.biglybt.pif.utils.UTTimer;
 import com.biglybt.pif.utils.Utilities;
 
 /**
@@ -81,6 +77,22 @@ public class Checker_PIA
 	// Is it always 70000? who knows
 	private static final int STATUS_FILE_PORT_INDEX = 70000;
 
+	private static final int LOG_TAIL_SIZE = 1024 * 128;
+
+	private static final String LOG_STATUS_MARKER = "|status| Received status {";
+
+	private static final String LOG_PORT_MARKER = "Forwarded port updated to ";
+
+	/** How often to check PIA's files when they can't be watched */
+	private static final long FILE_POLL_MS = 5000;
+
+	private static final long CLI_READY_TIMEOUT_MS = 5000;
+
+	/** piactl can report several ports in a row while connecting */
+	private static final long CLI_PORT_SETTLE_MS = 2000;
+
+	private static final long CLI_PORT_SETTLE_MAX_MS = 10000;
+
 	private static final String VPN_DOMAIN = "www.privateinternetaccess.com";
 
 	private static final String PIA_RPC_URL = "https://" + VPN_DOMAIN
@@ -92,7 +104,17 @@ public class Checker_PIA
 
 	private static BooleanParameter paramUseCLI;
 
-	private Process cliProcess;
+	private LogTailer logTailer;
+
+	private FileWatcher fileWatcher;
+
+	private LogPortInfo logPortInfo;
+
+	private ProcessSupervisor cliSupervisor;
+
+	private final Debouncer cliPortDebouncer;
+
+	private volatile int cliPort;
 
 	private final Object cliProcessLock = new Object();
 
@@ -103,6 +125,8 @@ public class Checker_PIA
 	public Checker_PIA(PluginInterface pi) {
 		super(pi);
 		setMinSubnetMaskBitCount(24);
+		cliPortDebouncer = new Debouncer(scheduler, CLI_PORT_SETTLE_MS,
+				CLI_PORT_SETTLE_MAX_MS, this::applyCLIPort);
 		paramUseCLI.addConfigParameterListener(this);
 	}
 
@@ -180,10 +204,11 @@ public class Checker_PIA
 		return status;
 	}
 
-	private Status setupCLI(StringBuilder sbReply) {
+	private Status setupCLI(StatusReport sbReply) {
 		synchronized (cliProcessLock) {
-			if (cliProcess != null && cliProcess.isAlive()) {
+			if (cliSupervisor != null && cliSupervisor.isRunning()) {
 				addReply(sbReply, CHAR_GOOD, "pia.cli.running", lastCLIPortStatus);
+				addCLIStats(sbReply);
 				return getCLIStatus();
 			}
 		}
@@ -211,48 +236,28 @@ public class Checker_PIA
 			return status;
 		}
 		try {
+			ProcessSupervisor supervisor;
 			synchronized (cliProcessLock) {
-				cliProcess = Runtime.getRuntime().exec(new String[] {
-					fileCLI.getAbsolutePath(),
-					"monitor",
-					"portforward"
-				});
-
-				BufferedReader brIS = new BufferedReader(
-						new InputStreamReader(cliProcess.getInputStream()));
-
-				Thread stdOutReader = new Thread(() -> {
-					try {
-						String line;
-						while ((line = brIS.readLine()) != null) {
-							processCLI(line);
-						}
-					} catch (Exception e) {
-						PluginVPNHelper.log(
-								"piactl monitor error: " + Debug.getNestedExceptionMessage(e));
-						e.printStackTrace();
-					}
-
-					// Restart if needed
-					synchronized (cliProcessLock) {
-						if (cliProcess != null && !cliProcess.isAlive()) {
-							portBindingCheck();
-						}
-					}
-				}, "piactl monitor");
-				stdOutReader.setDaemon(true);
-				stdOutReader.start();
+				if (cliSupervisor == null) {
+					cliSupervisor = new ProcessSupervisor("piactl monitor",
+							new String[] {
+								fileCLI.getAbsolutePath(),
+								"monitor",
+								"portforward"
+							}, scheduler, this::processCLI);
+				}
+				supervisor = cliSupervisor;
 			}
 
-			// process immediately sends current status. Wait a few ms to be sure
-			// we get it.
-			try {
-				Thread.sleep(250);
-			} catch (InterruptedException e) {
+			// process immediately sends current status
+			if (!supervisor.start(CLI_READY_TIMEOUT_MS)) {
+				PluginVPNHelper.log("piactl monitor sent nothing within "
+						+ CLI_READY_TIMEOUT_MS + "ms");
 			}
 
 			addReply(sbReply, CHAR_GOOD, "pia.cli.startup", fileCLI.getAbsolutePath(),
 					lastCLIPortStatus);
+			addCLIStats(sbReply);
 
 			return getCLIStatus();
 		} catch (IOException e) {
@@ -264,25 +269,47 @@ public class Checker_PIA
 		return null;
 	}
 
+	private void addCLIStats(StatusReport sbReply) {
+		ProcessSupervisor supervisor;
+		synchronized (cliProcessLock) {
+			supervisor = cliSupervisor;
+		}
+		if (supervisor == null) {
+			return;
+		}
+		long age = supervisor.getLastLineAge();
+		addReply(sbReply, (char) 0, "pia.cli.stats",
+				Integer.toString(supervisor.getRestartCount()),
+				age < 0 ? "-" : Long.toString(age / 1000));
+	}
+
 	private void processCLI(String line) {
 		PluginVPNHelper.log("piactl monitor portforward returned " + line);
 		lastCLIPortStatus = line;
 		lastCLIPortStatusIsPort = line.matches("[0-9]+");
+		// Port status is part of the port forwarding result, so it needs a refresh
+		expireRPCLease();
+		int newPort = 0;
 		if (lastCLIPortStatusIsPort) {
 			try {
-				int newPort = Integer.parseInt(line);
-				UTTimer timer = pi.getUtilities().createTimer("PIA_Port");
-				timer.addEvent(System.currentTimeMillis() + 2000, event -> {
-					portBindingCheck();
-					changePort(newPort, new StringBuilder());
-				});
-				return;
-			} catch (Throwable t) {
-				PluginVPNHelper.log(Debug.getNestedExceptionMessageAndStack(t));
+				newPort = Integer.parseInt(line);
+			} catch (NumberFormatException e) {
 				lastCLIPortStatusIsPort = false;
 			}
 		}
+		cliPort = newPort;
+		cliPortDebouncer.trigger();
+	}
+
+	/**
+	 * Runs once piactl has been quiet for a moment, with its latest port
+	 */
+	private void applyCLIPort() {
 		portBindingCheck();
+		final int port = cliPort;
+		if (port > 0) {
+			queueTask(() -> changePort(port, new StatusReport(texts)));
+		}
 	}
 
 	private static File getPIAManagerDataPath(Utilities utils) {
@@ -341,9 +368,8 @@ public class Checker_PIA
 			if (ret[0].isEmpty()) {
 				File fileAccount = new File(pathPIAManagerData, "account.json");
 				if (fileAccount.exists() && Files.isReadable(fileAccount.toPath())) {
-					settingsText = FileUtil.readFileAsString(fileAccount, -1);
-					mapSettings = JSONUtils.decodeJSON(settingsText);
-					ret[0] = MapUtils.getMapString(mapSettings, "username", "");
+					ret[0] = parseAccountString(
+							FileUtil.readFileAsString(fileAccount, -1), "username", "");
 					// There's a password key, but it's always blank
 					// There's an openvpnPassword, but it's encrypted/obfuscated and is
 					// hard to say if it's the right pw
@@ -485,7 +511,7 @@ public class Checker_PIA
 		return pathPIAManager;
 	}
 
-	private Status checkStatusFileForPort(StringBuilder sReply) {
+	private Status checkStatusFileForPort(StatusReport sReply) {
 		// Read the status_file for forwarding port
 
 		File pathPIAManagerData = getPIAManagerDataPath(pi.getUtilities());
@@ -496,17 +522,11 @@ public class Checker_PIA
 
 		try {
 			File fileSettings = new File(pathPIAManagerData, "settings.json");
-			String settingsString = FileUtil.readFileAsString(fileSettings, -1);
-			Map<?, ?> mapSettings = JSONUtils.decodeJSON(settingsString);
-			if (mapSettings != null) {
-				// old key was "portforward", new key is "portForward"
-				Boolean portForwardEnabled = mapSettings.containsKey("portforward")
-						? (Boolean) mapSettings.get("portforward")
-						: (Boolean) mapSettings.get("portForward");
-				if (portForwardEnabled != null && !portForwardEnabled) {
-					addReply(sReply, CHAR_WARN, "pia.no.port.config");
-					return new Status(STATUS_ID_WARN);
-				}
+			Boolean portForwardEnabled = parsePortForwardEnabled(
+					FileUtil.readFileAsString(fileSettings, -1));
+			if (portForwardEnabled != null && !portForwardEnabled) {
+				addReply(sReply, CHAR_WARN, "pia.no.port.config");
+				return new Status(STATUS_ID_WARN);
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -526,18 +546,12 @@ public class Checker_PIA
 			return new Status(STATUS_ID_WARN);
 		}
 		try {
-			byte[] statusFileBytes = FileUtil.readFileAsByteArray(fileStatus);
+			String jsonPort = extractStatusFileJSON(
+					FileUtil.readFileAsByteArray(fileStatus));
 
-			if (statusFileBytes.length > STATUS_FILE_PORT_INDEX
-					&& statusFileBytes[STATUS_FILE_PORT_INDEX] == '{') {
-				int endPos = STATUS_FILE_PORT_INDEX;
-				while (endPos < statusFileBytes.length && statusFileBytes[endPos] > 1) {
-					endPos++;
-				}
+			if (jsonPort != null) {
 				boolean gotPort = false;
 
-				String jsonPort = new String(statusFileBytes, STATUS_FILE_PORT_INDEX,
-						endPos - STATUS_FILE_PORT_INDEX);
 				Map<?, ?> decodeJSON = JSONUtils.decodeJSON(jsonPort);
 				if (decodeJSON != null && decodeJSON.containsKey("single")) {
 					Object oPort = decodeJSON.get("single");
@@ -583,7 +597,7 @@ public class Checker_PIA
 	 * <p/>
 	 * This is for very old PIA Manager versions and will be removed in the future
 	 */
-	private boolean searchLogForPort(StringBuilder sReply) {
+	private boolean searchLogForPort(StatusReport sReply) {
 		// Old PIA manager had a "nolog" file when logging was off
 		String pathPIAManager = paramManagerDir.getValue();
 		if (pathPIAManager == null) {
@@ -618,126 +632,252 @@ public class Checker_PIA
 			return false;
 		}
 
-		FileInputStream fis = null;
 		try {
-			fis = new FileInputStream(fileManagerLog);
-			long skip = fileManagerLog.length() - (1024 * 128);
+			LogPortInfo info = readLogPortInfo(fileManagerLog);
+			if (info == null) {
+				return false;
+			}
+			if (info.port > 0) {
+				addReply(sReply, CHAR_GOOD, "pia.port.in.log",
+						Integer.toString(info.port));
+
+				changePort(info.port, sReply);
+
+				return true;
+			}
+			if (info.region != null) {
+				if (info.regionSupportsForwarding != null) {
+					addReply(sReply, CHAR_WARN,
+							info.regionSupportsForwarding
+									? "pia.missing.forwarding.port.region"
+									: "pia.no.forwarding.port.region",
+							info.regionName == null ? info.region : info.regionName);
+				}
+			} else if (info.portNotSupported) {
+				// Assume -3 means server doesn't support open port
+				addReply(sReply, CHAR_WARN, "pia.no.forwarding.port.region",
+						"current");
+			} else if (info.portString != null) {
+				addReply(sReply, CHAR_WARN, "pia.port.in.log", info.portString);
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return Last {@link #LOG_TAIL_SIZE} bytes of the log
+	 */
+	static String readLogTail(File fileLog)
+			throws IOException {
+		FileInputStream fis = new FileInputStream(fileLog);
+		try {
+			long skip = fileLog.length() - LOG_TAIL_SIZE;
 			if (skip > 0) {
 				//noinspection ResultOfMethodCallIgnored
 				fis.skip(skip);
 			}
-			String tail = FileUtil.readInputStreamAsString(fis, -1, "utf8");
-			String FIND_STRING = "|status| Received status {";
-			int i = tail.lastIndexOf(FIND_STRING);
-			if (i >= 0) {
-				int start = i + FIND_STRING.length() - 1;
-				int end = tail.indexOf("\r", start);
-				if (end < 0) {
-					end = tail.indexOf('\n', start);
-				}
-				if (end >= 1) {
-					String json = tail.substring(start, end);
-					Map<?, ?> map = JSONUtils.decodeJSON(json);
-					Object o = MapUtils.getMapMap(map, "forwarded_port",
-							Collections.EMPTY_MAP).get("single");
-					if (o instanceof Number) {
-						int port = ((Number) o).intValue();
-
-						addReply(sReply, CHAR_GOOD, "pia.port.in.log",
-								Integer.toString(port));
+			return FileUtil.readInputStreamAsString(fis, -1, "utf8");
+		} finally {
+			try {
+				fis.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
 
-						changePort(port, sReply);
+	/**
+	 * Find the latest port (or why there isn't one) in a PIA log tail
+	 *
+	 * @return null if the log doesn't mention the port
+	 */
+	static LogPortInfo parseLogTail(String tail) {
+		if (tail == null) {
+			return null;
+		}
+		int i = tail.lastIndexOf(LOG_STATUS_MARKER);
+		if (i >= 0) {
+			return parseStatusJSON(
+					getLineFrom(tail, i + LOG_STATUS_MARKER.length() - 1));
+		}
 
-						return true;
-					}
+		i = tail.lastIndexOf(LOG_PORT_MARKER);
+		if (i < 0) {
+			return null;
+		}
+		return parsePortString(getLineFrom(tail, i + LOG_PORT_MARKER.length()));
+	}
 
-					o = MapUtils.getMapMap(map, "region", Collections.emptyMap()).get(
-							"single");
-					if (o instanceof String) {
-						Boolean supportsForwarding = null;
-						String regionName = null;
-						String ourRegion = (String) o;
-						List<?> listRegions = MapUtils.getMapList(map, "regions",
-								Collections.emptyList());
-						for (Object oRegion : listRegions) {
-							if (!(oRegion instanceof Map)) {
-								continue;
-							}
-							Map<?, ?> mapRegion = (Map<?, ?>) oRegion;
-							String regionCode = MapUtils.getMapString(mapRegion,
-									"region_code", null);
-							if (ourRegion.equals(regionCode)) {
-								Object forwarding = mapRegion.get("supports_port_forwarding");
-								regionName = (String) mapRegion.get("region_name");
-								if (forwarding instanceof Boolean) {
-									supportsForwarding = (Boolean) forwarding;
-								}
-								break;
-							}
-						}
+	/**
+	 * Follow the log, only parsing it again when a marker line changed.  Check
+	 * thread only.
+	 */
+	private LogPortInfo readLogPortInfo(File file)
+			throws IOException {
+		// watcher and check must agree, or they'd keep replacing the tailer
+		final File fileLog = file.getAbsoluteFile();
+		if (logTailer == null || !logTailer.getFile().equals(fileLog)) {
+			logTailer = new LogTailer(fileLog, LOG_TAIL_SIZE, LOG_STATUS_MARKER,
+					LOG_PORT_MARKER);
+			logPortInfo = null;
+		}
+		long bytesBefore = logTailer.getBytesRead();
+		if (logTailer.update()) {
+			String statusLine = logTailer.getLastMatch(LOG_STATUS_MARKER);
+			if (statusLine != null) {
+				logPortInfo = parseStatusJSON(
+						statusLine.substring(LOG_STATUS_MARKER.length() - 1));
+			} else {
+				String portLine = logTailer.getLastMatch(LOG_PORT_MARKER);
+				logPortInfo = portLine == null ? null
+						: parsePortString(portLine.substring(LOG_PORT_MARKER.length()));
+			}
+		}
+		final long read = logTailer.getBytesRead() - bytesBefore;
+		PluginVPNHelper.logVerbose(
+				() -> "Read " + read + " new bytes of " + fileLog.getName());
+		return logPortInfo;
+	}
 
-						if (supportsForwarding != null) {
-							addReply(sReply, CHAR_WARN,
-									supportsForwarding ? "pia.missing.forwarding.port.region"
-											: "pia.no.forwarding.port.region",
-									regionName == null ? ourRegion : regionName);
-						}
+	/**
+	 * @param json From a "Received status" line
+	 */
+	static LogPortInfo parseStatusJSON(String json) {
+		if (json == null) {
+			return null;
+		}
+		LogPortInfo info = new LogPortInfo();
+		Map<?, ?> map = JSONUtils.decodeJSON(json);
+		Object o = MapUtils.getMapMap(map, "forwarded_port",
+				Collections.EMPTY_MAP).get("single");
+		if (o instanceof Number) {
+			info.port = ((Number) o).intValue();
+			return info;
+		}
 
-					}
+		o = MapUtils.getMapMap(map, "region", Collections.emptyMap()).get(
+				"single");
+		if (o instanceof String) {
+			String ourRegion = (String) o;
+			info.region = ourRegion;
+			List<?> listRegions = MapUtils.getMapList(map, "regions",
+					Collections.emptyList());
+			for (Object oRegion : listRegions) {
+				if (!(oRegion instanceof Map)) {
+					continue;
 				}
-			} else {
-				FIND_STRING = "Forwarded port updated to ";
-				i = tail.lastIndexOf(FIND_STRING);
-				if (i >= 0) {
-					int start = i + FIND_STRING.length();
-					int end = tail.indexOf("\r", start);
-					if (end < 0) {
-						end = tail.indexOf('\n', start);
-					}
-					if (end >= 1) {
-						String portString = tail.substring(start, end);
-						try {
-							int port = Integer.parseInt(portString);
-							if (port > 0) {
-								addReply(sReply, CHAR_GOOD, "pia.port.in.log",
-										Integer.toString(port));
-
-								changePort(port, sReply);
-
-								return true;
-							} else if (port == -3) {
-								// Assume -3 means server doesn't support open port
-								addReply(sReply, CHAR_WARN, "pia.no.forwarding.port.region",
-										"current");
-							} else {
-								addReply(sReply, CHAR_WARN, "pia.port.in.log", portString);
-							}
-						} catch (NumberFormatException num) {
-							addReply(sReply, CHAR_WARN, "pia.port.in.log", portString);
-						}
+				Map<?, ?> mapRegion = (Map<?, ?>) oRegion;
+				String regionCode = MapUtils.getMapString(mapRegion, "region_code",
+						null);
+				if (ourRegion.equals(regionCode)) {
+					Object forwarding = mapRegion.get("supports_port_forwarding");
+					info.regionName = (String) mapRegion.get("region_name");
+					if (forwarding instanceof Boolean) {
+						info.regionSupportsForwarding = (Boolean) forwarding;
 					}
+					break;
 				}
-
 			}
+		}
+		return info;
+	}
 
-		} catch (Throwable e) {
-			e.printStackTrace();
-		} finally {
-			if (fis != null) {
-				try {
-					fis.close();
-				} catch (IOException ignore) {
-				}
+	/**
+	 * @param portString From an old-style "Forwarded port updated" line
+	 */
+	static LogPortInfo parsePortString(String portString) {
+		if (portString == null) {
+			return null;
+		}
+		LogPortInfo info = new LogPortInfo();
+		info.portString = portString;
+		try {
+			int port = Integer.parseInt(portString);
+			if (port > 0) {
+				info.port = port;
+			} else if (port == -3) {
+				info.portNotSupported = true;
 			}
+		} catch (NumberFormatException ignore) {
 		}
+		return info;
+	}
 
-		return false;
+	private static String getLineFrom(String s, int start) {
+		int end = s.indexOf("\r", start);
+		if (end < 0) {
+			end = s.indexOf('\n', start);
+		}
+		return end >= 1 ? s.substring(start, end) : null;
+	}
+
+	/**
+	 * @return null if settings.json doesn't say whether port forwarding is on
+	 */
+	static Boolean parsePortForwardEnabled(String settingsText) {
+		Map<?, ?> mapSettings = JSONUtils.decodeJSON(settingsText);
+		if (mapSettings == null) {
+			return null;
+		}
+		// old key was "portforward", new key is "portForward"
+		return mapSettings.containsKey("portforward")
+				? (Boolean) mapSettings.get("portforward")
+				: (Boolean) mapSettings.get("portForward");
+	}
+
+	static String parseAccountString(String accountText, String key,
+			String def) {
+		Map<?, ?> mapAccount = JSONUtils.decodeJSON(accountText);
+		return MapUtils.getMapString(mapAccount, key, def);
+	}
+
+	/**
+	 * Old PIA Manager wrote its port JSON at a fixed offset of status_file.txt
+	 *
+	 * @return null if there's no JSON at {@link #STATUS_FILE_PORT_INDEX}
+	 */
+	static String extractStatusFileJSON(byte[] statusFileBytes) {
+		if (statusFileBytes == null
+				|| statusFileBytes.length <= STATUS_FILE_PORT_INDEX
+				|| statusFileBytes[STATUS_FILE_PORT_INDEX] != '{') {
+			return null;
+		}
+		int endPos = STATUS_FILE_PORT_INDEX;
+		while (endPos < statusFileBytes.length && statusFileBytes[endPos] > 1) {
+			endPos++;
+		}
+		return new String(statusFileBytes, STATUS_FILE_PORT_INDEX,
+				endPos - STATUS_FILE_PORT_INDEX);
+	}
+
+	/**
+	 * What {@link #parseLogTail(String)} found
+	 */
+	static class LogPortInfo
+	{
+		/** &gt; 0 when the log has a forwarded port */
+		int port;
+
+		/** Region we're connected to, when the log has no port */
+		String region;
+
+		String regionName;
+
+		/** null if the region wasn't in the log's region list */
+		Boolean regionSupportsForwarding;
+
+		/** Raw value from an old-style "Forwarded port updated" line */
+		String portString;
+
+		boolean portNotSupported;
 	}
 
 	/**
 	 * Calls PIA RPC to get port
 	 */
-	private Status getPort(InetAddress bindIP, StringBuilder sReply) {
+	private Status getPort(InetAddress bindIP, StatusReport sReply) {
 		InetAddress[] resolve = null;
 		try {
 			String clientID = null;
@@ -751,9 +891,8 @@ public class Checker_PIA
 					// Newer PIA Manager stores a client id in account.json
 					File fileAccount = new File(pathPIAManagerData, "account.json");
 					if (fileAccount.exists() && Files.isReadable(fileAccount.toPath())) {
-						String settingsText = FileUtil.readFileAsString(fileAccount, -1);
-						Map<?, ?> mapSettings = JSONUtils.decodeJSON(settingsText);
-						clientID = MapUtils.getMapString(mapSettings, "clientId", null);
+						clientID = parseAccountString(
+								FileUtil.readFileAsString(fileAccount, -1), "clientId", null);
 					}
 				}
 			}
@@ -787,19 +926,17 @@ public class Checker_PIA
 
 			// Call needs to be from the VPN interface (the bindIP)
 			RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
-					bindIP).setConnectTimeout(15000).build();
+					bindIP).setConnectTimeout(15000).setSocketTimeout(15000).build();
 
 			post.setConfig(requestConfig);
 
 			post.setEntity(new UrlEncodedFormEntity(urlParameters));
 
-			CloseableHttpClient httpClient = HttpClients.createDefault();
-
 			// If BiglyBT has a proxy set up (Tools->Options->Connection->Proxy), then
 			// we'll need to disable it for the URL
 			AEProxySelector selector = AEProxySelectorFactory.getSelector();
 			if (selector != null) {
-				resolve = SystemDefaultDnsResolver.INSTANCE.resolve(VPN_DOMAIN);
+				resolve = CachingDnsResolver.get().resolve(VPN_DOMAIN);
 
 				for (InetAddress address : resolve) {
 					selector.setProxy(new InetSocketAddress(address, 443),
@@ -807,14 +944,18 @@ public class Checker_PIA
 				}
 			}
 
-			CloseableHttpResponse response = httpClient.execute(post);
-			BufferedReader rd = new BufferedReader(
-					new InputStreamReader(response.getEntity().getContent()));
-
 			StringBuilder result = new StringBuilder();
-			String line;
-			while ((line = rd.readLine()) != null) {
-				result.append(line);
+			CloseableHttpResponse response = httpClients.get(bindIP).execute(post);
+			try {
+				BufferedReader rd = new BufferedReader(
+						new InputStreamReader(response.getEntity().getContent()));
+
+				String line;
+				while ((line = rd.readLine()) != null) {
+					result.append(line);
+				}
+			} finally {
+				response.close();
 			}
 
 			boolean gotPort = false;
@@ -867,10 +1008,12 @@ public class Checker_PIA
 	}
 
 	@Override
-	protected Status callRPCforPort(InetAddress vpnIP, StringBuilder sReply) {
+	protected Status callRPCforPort(InetAddress vpnIP, StatusReport sReply) {
 
 		Status rpcStatus = null;
 
+		updateFileWatcher();
+
 		if (paramUseCLI.getValue()) {
 			Status cliStatus = setupCLI(sReply);
 			if (cliStatus != null) {
@@ -918,15 +1061,120 @@ public class Checker_PIA
 		}
 	}
 
-	@Override
-	public void destroy() {
-		super.destroy();
+	/**
+	 * Without the CLI, PIA only tells us about a new port through its files.
+	 * Watch them so the port is applied as soon as it's written, rather than
+	 * on the next check.
+	 */
+	private void updateFileWatcher() {
+		if (paramUseCLI.getValue()) {
+			stopFileWatcher();
+			return;
+		}
+
+		List<File> files = new ArrayList<>(3);
+		File pathPIAManagerData = getPIAManagerDataPath(pi.getUtilities());
+		if (pathPIAManagerData != null) {
+			files.add(new File(pathPIAManagerData, "settings.json"));
+			files.add(new File(pathPIAManagerData, "status_file.txt"));
+		}
+		File fileManagerLog = getPIAManagerLogFile(pi.getUtilities());
+		if (fileManagerLog != null) {
+			files.add(fileManagerLog);
+		}
+
+		synchronized (cliProcessLock) {
+			if (fileWatcher == null) {
+				fileWatcher = new FileWatcher(scheduler, FILE_POLL_MS,
+						new FileWatcher.Listener() {
+							@Override
+							public void fileChanged(final File file) {
+								queueTask(() -> applyPortFromFile(file));
+							}
+						});
+			}
+			for (File file : files) {
+				if (file.getParentFile() != null && file.getParentFile().isDirectory()
+						&& !fileWatcher.isWatching(file)) {
+					fileWatcher.watch(file);
+				}
+			}
+		}
+	}
+
+	private void stopFileWatcher() {
+		synchronized (cliProcessLock) {
+			if (fileWatcher != null) {
+				fileWatcher.destroy();
+				fileWatcher = null;
+			}
+		}
+	}
+
+	/**
+	 * Parse just the file that changed and apply any new port.  Runs on the
+	 * check thread.
+	 */
+	private void applyPortFromFile(File file) {
+		if (paramUseCLI.getValue() || vpnIP == null
+				|| !config.getPluginBooleanParameter(
+						PluginConstants.CONFIG_DO_PORT_FORWARDING)) {
+			return;
+		}
+		String name = file.getName();
+		StatusReport sReply = new StatusReport(texts);
+		try {
+			int port = 0;
+			if (name.equals("settings.json")) {
+				Boolean portForwardEnabled = parsePortForwardEnabled(
+						FileUtil.readFileAsString(file, -1));
+				if (portForwardEnabled != null && !portForwardEnabled) {
+					addReply(sReply, CHAR_WARN, "pia.no.port.config");
+				}
+				// Port status is part of the port forwarding result, so it needs a refresh
+				expireRPCLease();
+			} else if (name.equals("status_file.txt")) {
+				String jsonPort = extractStatusFileJSON(
+						FileUtil.readFileAsByteArray(file));
+				Map<?, ?> map = jsonPort == null ? null
+						: JSONUtils.decodeJSON(jsonPort);
+				Object oPort = map == null ? null : map.get("single");
+				if (oPort instanceof Number) {
+					port = ((Number) oPort).intValue();
+				}
+			} else {
+				LogPortInfo info = readLogPortInfo(file);
+				if (info != null) {
+					port = info.port;
+				}
+			}
+
+			if (port > 0) {
+				// changePort skips a port the core already has (or is about to)
+				PluginVPNHelper.log(name + " changed, applying port " + port);
+				changePort(port, sReply);
+			}
+		} catch (IOException e) {
+			// Often mid-write or just deleted; the next change or check will retry
+			PluginVPNHelper.log("Reading " + file + ": " + e.toString());
+		}
+	}
+
+	private void stopCLI() {
+		cliPortDebouncer.cancel();
 		synchronized (cliProcessLock) {
-			if (cliProcess != null) {
-				cliProcess.destroy();
-				cliProcess = null;
+			if (cliSupervisor != null) {
+				cliSupervisor.stop();
+				cliSupervisor = null;
 			}
 		}
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		stopFileWatcher();
+		stopCLI();
 		paramUseCLI.removeConfigParameterListener(this);
 	}
 
@@ -934,14 +1182,13 @@ public class Checker_PIA
 	public void configParameterChanged(ConfigParameter param) {
 		if (paramUseCLI.getValue()) {
 			// Will eventually run setupCLI
+			expireRPCLease();
 			portBindingCheck();
+			stopFileWatcher();
 		} else {
-			synchronized (cliProcessLock) {
-				if (cliProcess != null) {
-					cliProcess.destroy();
-					cliProcess = null;
-				}
-			}
+			stopCLI();
+			expireRPCLease();
+			portBindingCheck();
 		}
 	}
 }
@@ -74,7 +74,7 @@ Checker_PureVPN
 	protected Status 
 	callRPCforPort(
 		InetAddress 		vpnIP, 
-		StringBuilder 		sReply)
+		StatusReport 		sReply)
 	{
 		return( new Status(STATUS_ID_OK));
 	}
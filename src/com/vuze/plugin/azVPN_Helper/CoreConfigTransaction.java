@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.biglybt.pif.PluginConfig;
+
+/**
+ * Collects changes to core config and writes them together.
+ * <p/>
+ * Every core config write fires the core's listeners, and some (ports, bind
+ * address) restart network listeners.  Changes are diffed against the
+ * current values, so setting a value the core already has costs nothing, and
+ * a value set several times before {@link #commit()} is only written once.
+ * <p/>
+ * On commit, flags are written first, then ports, then strings such as the
+ * bind address, so a rebind triggered by the last write already sees the
+ * new ports.
+ */
+public class CoreConfigTransaction
+{
+	public interface WriteListener
+	{
+		/**
+		 * Called by {@link CoreConfigTransaction#commit(WriteListener)} after
+		 * each value it writes
+		 */
+		void written(String key, Object oldValue, Object newValue);
+	}
+
+	private enum Kind {
+		UNSAFE_BOOLEAN,
+		CORE_INT,
+		CORE_STRING
+	}
+
+	private static class Change
+	{
+		final Kind kind;
+
+		final String key;
+
+		final Object value;
+
+		Change(Kind kind, String key, Object value) {
+			this.kind = kind;
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private final PluginConfig config;
+
+	private final Map<String, Change> pending = new LinkedHashMap<>();
+
+	public CoreConfigTransaction(PluginConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * @return true if value differs from the core's (or already pending) value
+	 */
+	public synchronized boolean setUnsafeBoolean(String key, boolean value) {
+		return set(new Change(Kind.UNSAFE_BOOLEAN, key, value));
+	}
+
+	public synchronized boolean setCoreInt(String key, int value) {
+		return set(new Change(Kind.CORE_INT, key, value));
+	}
+
+	public synchronized boolean setCoreString(String key, String value) {
+		return set(new Change(Kind.CORE_STRING, key, value));
+	}
+
+	/**
+	 * @return Pending value if there is one, otherwise the core's
+	 */
+	public synchronized int getCoreInt(String key) {
+		Change change = pending.get(key);
+		if (change != null && change.kind == Kind.CORE_INT) {
+			return (Integer) change.value;
+		}
+		return config.getCoreIntParameter(key);
+	}
+
+	public synchronized String getCoreString(String key) {
+		Change change = pending.get(key);
+		if (change != null && change.kind == Kind.CORE_STRING) {
+			return (String) change.value;
+		}
+		return config.getCoreStringParameter(key);
+	}
+
+	public synchronized boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Write everything pending that still differs from the core
+	 *
+	 * @param listener Told of each value written, or null
+	 * @return Number of values written
+	 */
+	public int commit(WriteListener listener) {
+		List<Change> changes;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return 0;
+			}
+			changes = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+		Collections.sort(changes, (a, b) -> a.kind.compareTo(b.kind));
+
+		// Written outside the lock; core listeners may call back into us
+		int written = 0;
+		StringBuilder log = new StringBuilder();
+		for (Change change : changes) {
+			Object current = getCurrent(change);
+			if (change.value.equals(current)) {
+				continue;
+			}
+			switch (change.kind) {
+				case UNSAFE_BOOLEAN:
+					config.setUnsafeBooleanParameter(change.key, (Boolean) change.value);
+					break;
+				case CORE_INT:
+					config.setCoreIntParameter(change.key, (Integer) change.value);
+					break;
+				case CORE_STRING:
+					config.setCoreStringParameter(change.key, (String) change.value);
+					break;
+			}
+			written++;
+			if (listener != null) {
+				try {
+					listener.written(change.key, current, change.value);
+				} catch (Throwable t) {
+					t.printStackTrace();
+				}
+			}
+			log.append(log.length() == 0 ? "" : ", ").append(change.key).append(
+					' ').append(current).append(" -> ").append(change.value);
+		}
+		if (written > 0) {
+			PluginVPNHelper.log("Wrote " + written + " core config value(s): "
+					+ log);
+		}
+		return written;
+	}
+
+	private boolean set(Change change) {
+		Change existing = pending.get(change.key);
+		if (existing != null && existing.value.equals(change.value)) {
+			return false;
+		}
+		if (change.value.equals(getCurrent(change))) {
+			// back to what the core has; nothing to write
+			pending.remove(change.key);
+			return existing != null;
+		}
+		pending.put(change.key, change);
+		return true;
+	}
+
+	private Object getCurrent(Change change) {
+		switch (change.kind) {
+			case UNSAFE_BOOLEAN:
+				return config.getUnsafeBooleanParameter(change.key,
+						!(Boolean) change.value);
+			case CORE_INT:
+				return config.getCoreIntParameter(change.key);
+			default:
+				return config.getCoreStringParameter(change.key);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.concurrent.*;
+
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Collapses a burst of {@link #trigger()} calls into one run of the target,
+ * {@link #delay} ms after the last trigger.  A steady stream of triggers still
+ * runs the target at least every {@link #maxDelay} ms.
+ */
+public class Debouncer
+{
+	private final ScheduledExecutorService scheduler;
+
+	private final long delay;
+
+	private final long maxDelay;
+
+	private final Runnable target;
+
+	private ScheduledFuture<?> pending;
+
+	private long firstTriggerOn;
+
+	private int generation;
+
+	public Debouncer(ScheduledExecutorService scheduler, long delay,
+			long maxDelay, Runnable target) {
+		this.scheduler = scheduler;
+		this.delay = delay;
+		this.maxDelay = maxDelay;
+		this.target = target;
+	}
+
+	public synchronized void trigger() {
+		long now = SystemTime.getMonotonousTime();
+		if (pending != null) {
+			pending.cancel(false);
+		} else {
+			firstTriggerOn = now;
+		}
+		final int runGeneration = ++generation;
+		long runIn = Math.min(delay, Math.max(0, firstTriggerOn + maxDelay - now));
+		try {
+			pending = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (Debouncer.this) {
+						if (runGeneration != generation) {
+							// superseded by a later trigger
+							return;
+						}
+						pending = null;
+					}
+					try {
+						target.run();
+					} catch (Throwable t) {
+						t.printStackTrace();
+					}
+				}
+			}, runIn, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// scheduler shut down
+			pending = null;
+		}
+	}
+
+	public synchronized void cancel() {
+		generation++;
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.biglybt.core.util.FileUtil;
+
+/**
+ * Port from a file that is rewritten when the port changes, such as
+ * gluetun's forwarded_port.  Watched with {@link FileWatcher}.
+ */
+public class FilePortSource
+	extends PortSource
+{
+	/** Only used when the directory can't be watched */
+	private static final long POLL_MS = 5000;
+
+	private final File file;
+
+	private final ScheduledExecutorService scheduler;
+
+	private FileWatcher fileWatcher;
+
+	public FilePortSource(String location, String regex,
+			ScheduledExecutorService scheduler, Listener listener) {
+		super(location, regex, listener);
+		this.file = new File(location).getAbsoluteFile();
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (fileWatcher != null) {
+			return;
+		}
+		fileWatcher = new FileWatcher(scheduler, POLL_MS,
+				new FileWatcher.Listener() {
+					@Override
+					public void fileChanged(File changedFile) {
+						readFile();
+					}
+				});
+		File dir = file.getParentFile();
+		if (dir == null || !dir.isDirectory()) {
+			setError("Can't Find");
+			return;
+		}
+		fileWatcher.watch(file);
+		readFile();
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (fileWatcher != null) {
+			fileWatcher.destroy();
+			fileWatcher = null;
+		}
+	}
+
+	private void readFile() {
+		if (!file.isFile()) {
+			setError("Can't Find");
+			return;
+		}
+		try {
+			received(FileUtil.readFileAsString(file, 65535, "utf8"), true);
+		} catch (Throwable t) {
+			setError(t.toString());
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells a listener when any of a set of files is created, modified or
+ * deleted.
+ * <p/>
+ * Uses a {@link WatchService} on the files' directories.  If the platform
+ * can't watch a directory, its files are polled for size and modification
+ * time changes instead.  Bursts of changes to one file (editors and loggers
+ * often write several times in a row) are collapsed into one notification.
+ */
+public class FileWatcher
+{
+	public interface Listener
+	{
+		/**
+		 * Called on the scheduler thread
+		 */
+		void fileChanged(File file);
+	}
+
+	private static final long SETTLE_MS = 500;
+
+	private static final long SETTLE_MAX_MS = 2000;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final long pollMS;
+
+	private final Listener listener;
+
+	private final Map<File, Debouncer> debouncers = new HashMap<>();
+
+	/** Files being polled, with their last seen size/mtime */
+	private final Map<File, long[]> polled = new HashMap<>();
+
+	private final Set<Path> watchedDirs = new HashSet<>();
+
+	private WatchService watchService;
+
+	private Thread watchThread;
+
+	private ScheduledFuture<?> pollFuture;
+
+	private boolean destroyed;
+
+	public FileWatcher(ScheduledExecutorService scheduler, long pollMS,
+			Listener listener) {
+		this.scheduler = scheduler;
+		this.pollMS = pollMS;
+		this.listener = listener;
+	}
+
+	/**
+	 * Start watching file.  It doesn't need to exist yet, but its directory
+	 * does.  The listener is given the absolute file.
+	 */
+	public synchronized void watch(File file) {
+		final File watchedFile = file.getAbsoluteFile();
+		if (destroyed || debouncers.containsKey(watchedFile)) {
+			return;
+		}
+		debouncers.put(watchedFile, new Debouncer(scheduler, SETTLE_MS, SETTLE_MAX_MS,
+				new Runnable() {
+					@Override
+					public void run() {
+						listener.fileChanged(watchedFile);
+					}
+				}));
+
+		Path dir = watchedFile.getParentFile().toPath();
+		if (watchedDirs.contains(dir)) {
+			return;
+		}
+		try {
+			if (watchService == null) {
+				watchService = dir.getFileSystem().newWatchService();
+				startWatchThread();
+			}
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+			watchedDirs.add(dir);
+		} catch (IOException | UnsupportedOperationException e) {
+			PluginVPNHelper.log("Can't watch " + dir + " (" + e.toString()
+					+ "), polling every " + pollMS + "ms instead");
+			startPolling(watchedFile);
+		}
+	}
+
+	public synchronized boolean isWatching(File file) {
+		return debouncers.containsKey(file.getAbsoluteFile());
+	}
+
+	public synchronized void destroy() {
+		destroyed = true;
+		for (Debouncer debouncer : debouncers.values()) {
+			debouncer.cancel();
+		}
+		debouncers.clear();
+		polled.clear();
+		if (pollFuture != null) {
+			pollFuture.cancel(false);
+			pollFuture = null;
+		}
+		if (watchService != null) {
+			try {
+				// wakes the watch thread with ClosedWatchServiceException
+				watchService.close();
+			} catch (IOException ignore) {
+			}
+			watchService = null;
+		}
+	}
+
+	private void startWatchThread() {
+		final WatchService service = watchService;
+		watchThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						WatchKey key = service.take();
+						Path dir = (Path) key.watchable();
+						for (WatchEvent<?> event : key.pollEvents()) {
+							if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+								triggerAllIn(dir);
+							} else {
+								trigger(dir.resolve((Path) event.context()).toFile());
+							}
+						}
+						key.reset();
+					}
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					// destroyed
+				}
+			}
+		}, "VPNHelper FileWatcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	private void startPolling(File file) {
+		polled.put(file, new long[] {
+			file.length(),
+			file.lastModified()
+		});
+		if (pollFuture != null) {
+			return;
+		}
+		pollFuture = scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				poll();
+			}
+		}, pollMS, pollMS, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void poll() {
+		for (Map.Entry<File, long[]> entry : polled.entrySet()) {
+			File file = entry.getKey();
+			long[] last = entry.getValue();
+			long size = file.length();
+			long modified = file.lastModified();
+			if (size != last[0] || modified != last[1]) {
+				last[0] = size;
+				last[1] = modified;
+				trigger(file);
+			}
+		}
+	}
+
+	private synchronized void trigger(File file) {
+		Debouncer debouncer = debouncers.get(file.getAbsoluteFile());
+		if (debouncer != null) {
+			debouncer.trigger();
+		}
+	}
+
+	private synchronized void triggerAllIn(Path dir) {
+		for (Map.Entry<File, Debouncer> entry : debouncers.entrySet()) {
+			if (entry.getKey().getParentFile().toPath().equals(dir)) {
+				entry.getValue().trigger();
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * One pooled HTTP client per local bind address, shared by all of a
+ * checker's requests so connections (and TLS sessions) survive between
+ * checks.
+ * <p/>
+ * Callers must fully read and close each response, otherwise the connection
+ * is not returned to the pool.
+ * <p/>
+ * Host names are resolved through {@link CachingDnsResolver}.
+ */
+public class HttpClientRegistry
+{
+	private static final int MAX_CONNECTIONS_PER_ROUTE = 2;
+
+	private static final int MAX_CONNECTIONS_TOTAL = 8;
+
+	/**
+	 * Pooled connections idle longer than this are closed on the next lookup.
+	 * Most servers drop keep-alive connections well before our next check.
+	 */
+	private static final long MAX_IDLE_SECS = 300;
+
+	private final Map<InetAddress, PooledClient> clients = new HashMap<>();
+
+	private boolean closed;
+
+	/**
+	 * @param bindAddress Local address to send from.  null for default routing
+	 */
+	public synchronized CloseableHttpClient get(InetAddress bindAddress) {
+		if (closed) {
+			throw new IllegalStateException("HttpClientRegistry closed");
+		}
+		PooledClient pooledClient = clients.get(bindAddress);
+		if (pooledClient == null) {
+			pooledClient = new PooledClient(bindAddress);
+			clients.put(bindAddress, pooledClient);
+		} else {
+			pooledClient.connectionManager.closeExpiredConnections();
+			pooledClient.connectionManager.closeIdleConnections(MAX_IDLE_SECS,
+					TimeUnit.SECONDS);
+		}
+		return pooledClient.client;
+	}
+
+	/**
+	 * Close the pool for one bind address.  A later {@link #get(InetAddress)}
+	 * creates a fresh one.
+	 */
+	public void close(InetAddress bindAddress) {
+		PooledClient pooledClient;
+		synchronized (this) {
+			pooledClient = clients.remove(bindAddress);
+		}
+		if (pooledClient != null) {
+			pooledClient.close();
+		}
+	}
+
+	public void closeAll() {
+		List<PooledClient> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayList<>(clients.values());
+			clients.clear();
+		}
+		for (PooledClient pooledClient : toClose) {
+			pooledClient.close();
+		}
+	}
+
+	private static class PooledClient
+	{
+		final PoolingHttpClientConnectionManager connectionManager;
+
+		final CloseableHttpClient client;
+
+		final InetAddress bindAddress;
+
+		PooledClient(InetAddress bindAddress) {
+			this.bindAddress = bindAddress;
+			// Same socket factories HttpClients.custom() would use, plus our DNS cache
+			connectionManager = new PoolingHttpClientConnectionManager(
+					RegistryBuilder.<ConnectionSocketFactory> create().register("http",
+							PlainConnectionSocketFactory.getSocketFactory()).register("https",
+									SSLConnectionSocketFactory.getSocketFactory()).build(),
+					CachingDnsResolver.get());
+			connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+			connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+
+			// A request's own RequestConfig replaces this one; it needs its own
+			// socket timeout too, or a stalled read holds up every later check
+			client = HttpClients.custom().setConnectionManager(
+					connectionManager).setDefaultRequestConfig(
+							RequestConfig.custom().setLocalAddress(
+									bindAddress).setConnectTimeout(15000).setSocketTimeout(
+											15000).build()).build();
+		}
+
+		void close() {
+			try {
+				client.close();
+			} catch (IOException e) {
+				PluginVPNHelper.log("Closing HTTP pool for " + bindAddress + ": "
+						+ e.toString());
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Follows a log file that is only ever appended to (or rotated), remembering
+ * the last line containing each of a set of markers.
+ * <p/>
+ * Each {@link #update()} reads only the bytes appended since the previous
+ * one.  A rotated or truncated file is detected by its file key (or creation
+ * time, where the OS has no file key) and size, and read again from its tail.
+ * <p/>
+ * The file is opened per update and closed straight after, so the writer can
+ * always rotate it.
+ */
+public class LogTailer
+{
+	private final File file;
+
+	private final int maxReadSize;
+
+	private final String[] markers;
+
+	/** Last line containing markers[i], starting at the marker */
+	private final String[] matches;
+
+	private Object fileKey;
+
+	private long offset;
+
+	/** Trailing bytes of the last read that didn't end in a newline */
+	private byte[] partialLine = new byte[0];
+
+	private long bytesRead;
+
+	/**
+	 * @param maxReadSize Most bytes to read at once.  When more than this has
+	 * been appended, only the end is read.
+	 */
+	public LogTailer(File file, int maxReadSize, String... markers) {
+		this.file = file;
+		this.maxReadSize = maxReadSize;
+		this.markers = markers;
+		this.matches = new String[markers.length];
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Read what's been appended since the last call
+	 *
+	 * @return true if the latest line of any marker changed
+	 */
+	public synchronized boolean update()
+			throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+					BasicFileAttributes.class);
+			Object key = attrs.fileKey() == null ? attrs.creationTime()
+					: attrs.fileKey();
+			long size = channel.size();
+
+			boolean changed = false;
+			if (!key.equals(fileKey) || size < offset) {
+				// new or rotated file
+				changed = fileKey != null && clearMatches();
+				fileKey = key;
+				offset = 0;
+				partialLine = new byte[0];
+			}
+
+			if (size == offset) {
+				return changed;
+			}
+
+			long start = offset;
+			if (size - start > maxReadSize) {
+				start = size - maxReadSize;
+				partialLine = new byte[0];
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(
+					partialLine.length + (int) (size - start));
+			buffer.put(partialLine);
+			long position = start;
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					break;
+				}
+				position += read;
+			}
+			bytesRead += position - start;
+			offset = position;
+
+			byte[] bytes = buffer.array();
+			int len = buffer.position();
+			int lastEOL = len - 1;
+			while (lastEOL >= 0 && bytes[lastEOL] != '\n' && bytes[lastEOL] != '\r') {
+				lastEOL--;
+			}
+			partialLine = Arrays.copyOfRange(bytes, lastEOL + 1, len);
+			if (lastEOL < 0) {
+				return changed;
+			}
+
+			String lines = new String(bytes, 0, lastEOL + 1, StandardCharsets.UTF_8);
+			for (int i = 0; i < markers.length; i++) {
+				int pos = lines.lastIndexOf(markers[i]);
+				if (pos < 0) {
+					continue;
+				}
+				int end = pos;
+				while (end < lines.length() && lines.charAt(end) != '\r'
+						&& lines.charAt(end) != '\n') {
+					end++;
+				}
+				String match = lines.substring(pos, end);
+				if (!match.equals(matches[i])) {
+					matches[i] = match;
+					changed = true;
+				}
+			}
+			return changed;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return Last line seen containing the marker, from the marker onwards, or
+	 * null
+	 */
+	public synchronized String getLastMatch(String marker) {
+		for (int i = 0; i < markers.length; i++) {
+			if (markers[i].equals(marker)) {
+				return matches[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return Total bytes read from the file since this tailer was created
+	 */
+	public synchronized long getBytesRead() {
+		return bytesRead;
+	}
+
+	private boolean clearMatches() {
+		boolean had = false;
+		for (int i = 0; i < matches.length; i++) {
+			had |= matches[i] != null;
+			matches[i] = null;
+		}
+		return had;
+	}
+}
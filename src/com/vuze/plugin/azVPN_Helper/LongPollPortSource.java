@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+import com.biglybt.core.util.Debug;
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Port from a long-poll HTTP endpoint: the server holds each request until
+ * the port changes (or it times out), then the request is sent again at
+ * once.  The last ETag is sent as If-None-Match so the server can tell what
+ * we already have.
+ * <p/>
+ * The endpoint is usually a local control server, so requests use default
+ * routing rather than the VPN address.  A server that answers straight away
+ * without a change is backed off from, rather than hammered.
+ */
+public class LongPollPortSource
+	extends PortSource
+{
+	/** How long the server may hold a request */
+	private static final int HOLD_TIMEOUT_MS = 5 * 60 * 1000;
+
+	/** Answers quicker than this without a change mean the server didn't hold */
+	private static final long MIN_HOLD_MS = 1000;
+
+	private final String url;
+
+	private final HttpClientRegistry httpClients;
+
+	private volatile boolean stopped;
+
+	private Thread thread;
+
+	private HttpGet request;
+
+	private String etag;
+
+	public LongPollPortSource(String location, String regex,
+			HttpClientRegistry httpClients, Listener listener) {
+		super(location, regex, listener);
+		this.url = location.substring(PREFIX_LONG_POLL.length()).trim();
+		this.httpClients = httpClients;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		stopped = false;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				pollLoop();
+			}
+		}, "VPNHelper Port Long Poll");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void stop() {
+		HttpGet toAbort;
+		synchronized (this) {
+			stopped = true;
+			toAbort = request;
+			request = null;
+			if (thread != null) {
+				thread.interrupt();
+				thread = null;
+			}
+		}
+		if (toAbort != null) {
+			toAbort.abort();
+		}
+	}
+
+	private void pollLoop() {
+		long retryMS = MIN_RETRY_MS;
+		while (!stopped) {
+			long start = SystemTime.getMonotonousTime();
+			boolean changed = false;
+			try {
+				changed = poll();
+			} catch (Throwable t) {
+				if (stopped) {
+					return;
+				}
+				setError(Debug.getNestedExceptionMessage(t));
+			}
+
+			if (changed) {
+				retryMS = MIN_RETRY_MS;
+				continue;
+			}
+			if (SystemTime.getMonotonousTime() - start >= MIN_HOLD_MS) {
+				// server held the request and timed out; normal
+				continue;
+			}
+			try {
+				Thread.sleep(retryMS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			retryMS = Math.min(MAX_RETRY_MS, retryMS * 2);
+		}
+	}
+
+	/**
+	 * @return true if the server sent new content
+	 */
+	private boolean poll()
+			throws Exception {
+		HttpGet get = new HttpGet(url);
+		get.setConfig(RequestConfig.custom().setConnectTimeout(15000).setSocketTimeout(
+				HOLD_TIMEOUT_MS).build());
+		if (etag != null) {
+			get.setHeader("If-None-Match", etag);
+		}
+		synchronized (this) {
+			if (stopped) {
+				return false;
+			}
+			request = get;
+		}
+		CloseableHttpResponse response = httpClients.get(null).execute(get);
+		try {
+			int code = response.getStatusLine().getStatusCode();
+			if (code == HttpStatus.SC_NOT_MODIFIED) {
+				return false;
+			}
+			String body = response.getEntity() == null ? ""
+					: EntityUtils.toString(response.getEntity(), "utf8");
+			if (code >= 400) {
+				throw new Exception(response.getStatusLine().toString());
+			}
+			Header header = response.getFirstHeader("ETag");
+			String newEtag = header == null ? null : header.getValue();
+			if (newEtag != null && newEtag.equals(etag)) {
+				return false;
+			}
+			etag = newEtag;
+			int before = getLastPort();
+			received(body, true);
+			return getLastPort() != before;
+		} finally {
+			response.close();
+			synchronized (this) {
+				if (request == get) {
+					request = null;
+				}
+			}
+		}
+	}
+}
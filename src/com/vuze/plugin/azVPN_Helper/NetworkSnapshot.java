@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.*;
+import java.util.*;
+
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Point in time view of the local network interfaces, indexed by address.
+ * <p/>
+ * Enumerates the OS interfaces directly instead of going through NetUtils'
+ * cache, so a fresh snapshot is never stale.  That includes the bindable
+ * addresses.  Snapshots are shared plugin wide for a few seconds;
+ * {@link #invalidate()} forces the next {@link #get()} to rescan.
+ */
+public class NetworkSnapshot
+{
+	private static final long MAX_AGE_MS = 10 * 1000L;
+
+	private static NetworkSnapshot current;
+
+	private final List<InterfaceInfo> interfaces;
+
+	private final Map<InetAddress, AddressInfo> byAddress = new HashMap<>();
+
+	private final InetAddress[] bindableAddresses;
+
+	private final long capturedOn;
+
+	public NetworkSnapshot(List<InterfaceInfo> interfaces,
+			InetAddress[] bindableAddresses) {
+		this.interfaces = Collections.unmodifiableList(interfaces);
+		this.bindableAddresses = bindableAddresses;
+		this.capturedOn = SystemTime.getMonotonousTime();
+		for (InterfaceInfo info : interfaces) {
+			for (AddressInfo addressInfo : info.addresses) {
+				if (!byAddress.containsKey(addressInfo.address)) {
+					byAddress.put(addressInfo.address, addressInfo);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Shared snapshot, rescanning if it's invalidated or too old
+	 */
+	public static synchronized NetworkSnapshot get() {
+		if (current == null
+				|| SystemTime.getMonotonousTime() - current.capturedOn > MAX_AGE_MS) {
+			current = capture();
+		}
+		return current;
+	}
+
+	public static synchronized void invalidate() {
+		current = null;
+	}
+
+	private static NetworkSnapshot capture() {
+		List<InterfaceInfo> list = new ArrayList<>();
+		try {
+			Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+			while (networkInterfaces != null && networkInterfaces.hasMoreElements()) {
+				NetworkInterface networkInterface = networkInterfaces.nextElement();
+				try {
+					if (!networkInterface.isUp()) {
+						continue;
+					}
+				} catch (SocketException e) {
+					continue;
+				}
+				list.add(new InterfaceInfo(networkInterface));
+			}
+		} catch (Throwable t) {
+			PluginVPNHelper.log("Enumerating network interfaces: " + t.toString());
+		}
+
+		// From this scan rather than core's cached interface list, so a rescan
+		// sees new ones
+		List<InetAddress> bindable = new ArrayList<>();
+		for (InterfaceInfo info : list) {
+			for (AddressInfo addressInfo : info.addresses) {
+				if (isBindable(addressInfo.address)) {
+					bindable.add(addressInfo.address);
+				}
+			}
+		}
+		return new NetworkSnapshot(list, bindable.toArray(new InetAddress[0]));
+	}
+
+	/**
+	 * Loopback can't carry traffic out, and an IPv6 link-local address needs
+	 * a scope the core's bind IP setting can't express
+	 */
+	private static boolean isBindable(InetAddress address) {
+		if (address.isLoopbackAddress() || address.isAnyLocalAddress()) {
+			return false;
+		}
+		return !(address instanceof Inet6Address && address.isLinkLocalAddress());
+	}
+
+	public List<InterfaceInfo> getInterfaces() {
+		return interfaces;
+	}
+
+	public InetAddress[] getBindableAddresses() {
+		return bindableAddresses;
+	}
+
+	/**
+	 * @return null if no interface has the address
+	 */
+	public AddressInfo get(InetAddress address) {
+		return address == null ? null : byAddress.get(address);
+	}
+
+	public long getCapturedOn() {
+		return capturedOn;
+	}
+
+	/**
+	 * @return "name (display name)" of the interface with the address
+	 */
+	public String getInterfaceLabel(InetAddress address, String unknown) {
+		AddressInfo info = get(address);
+		return info == null ? unknown : info.networkInterface.getLabel();
+	}
+
+	public static int getNetworkPrefixLength(NetworkInterface networkInterface,
+			InetAddress address) {
+		int networkPrefixLength = -1;
+		try{
+			List<InterfaceAddress> interfaceAddresses = networkInterface.getInterfaceAddresses();
+			for (InterfaceAddress interfaceAddress : interfaceAddresses) {
+				if (!interfaceAddress.getAddress().equals(address)) {
+					continue;
+				}
+				networkPrefixLength = interfaceAddress.getNetworkPrefixLength();
+				// JDK-7107883 : getNetworkPrefixLength() does not return correct prefix length
+				// networkPrefixLength will be zero on Java <= 7 when there is no
+				// Broadcast address.
+				// I'm guessing there is no broadcast address returned when mask is 32
+				// on linux, but I can't confirm (I've seen it though)
+				if (networkPrefixLength == 0 && interfaceAddress.getBroadcast() == null) {
+					networkPrefixLength = 32;
+				}
+			}
+		}catch( Throwable e ){
+			// ignore, we get an NPE in networkInterface.getInterfaceAddresses() sometimes it seems
+		}
+		return networkPrefixLength;
+	}
+
+	public static class InterfaceInfo
+	{
+		public final String name;
+
+		public final String displayName;
+
+		/**
+		 * In NetworkInterface.getInetAddresses() order, which is the order
+		 * core uses for "name[index]" bind entries
+		 */
+		public final AddressInfo[] addresses;
+
+		public InterfaceInfo(NetworkInterface networkInterface) {
+			this.name = networkInterface.getName();
+			String displayName = networkInterface.getDisplayName();
+			this.displayName = displayName == null ? name : displayName;
+
+			List<AddressInfo> list = new ArrayList<>();
+			Enumeration<InetAddress> inetAddresses = networkInterface.getInetAddresses();
+			for (int i = 0; inetAddresses.hasMoreElements(); i++) {
+				InetAddress address = inetAddresses.nextElement();
+				list.add(new AddressInfo(this, address, i,
+						getNetworkPrefixLength(networkInterface, address)));
+			}
+			addresses = list.toArray(new AddressInfo[0]);
+		}
+
+		/**
+		 * For building snapshots without a real interface
+		 *
+		 * @param prefixLengths one per address, -1 if unknown
+		 */
+		public InterfaceInfo(String name, String displayName,
+				InetAddress[] inetAddresses, int[] prefixLengths) {
+			this.name = name;
+			this.displayName = displayName;
+			addresses = new AddressInfo[inetAddresses.length];
+			for (int i = 0; i < inetAddresses.length; i++) {
+				addresses[i] = new AddressInfo(this, inetAddresses[i], i,
+						prefixLengths[i]);
+			}
+		}
+
+		public String getLabel() {
+			return name + " (" + displayName + ")";
+		}
+	}
+
+	public static class AddressInfo
+	{
+		public final InterfaceInfo networkInterface;
+
+		public final InetAddress address;
+
+		/**
+		 * Position of address in its interface's address list
+		 */
+		public final int index;
+
+		public final int networkPrefixLength;
+
+		AddressInfo(InterfaceInfo networkInterface, InetAddress address,
+				int index, int networkPrefixLength) {
+			this.networkInterface = networkInterface;
+			this.address = address;
+			this.index = index;
+			this.networkPrefixLength = networkPrefixLength;
+		}
+	}
+}
@@ -29,12 +29,16 @@ public class PluginConstants
 
 	public static final String CONFIG_VPN_IP_MATCHING = "vpn.ip.regex";
 
+	public static final String CONFIG_VPN_IP_CIDR = "vpn.ip.cidr";
+
 	public static final String CONFIG_DO_PORT_FORWARDING = "vpn.port.forwarding";
 
 	public static final String CONFIG_PORT_READ_LOCATION = "vpn.port.read.location";
 
 	public static final String CONFIG_PORT_READ_LOCATION_REGEX = "vpn.port.read.location.regex";
 
+	public static final String CONFIG_LOG_VERBOSE = "vpn.log.verbose";
+
 	public static final String CONFIG_P = "p.privx";
 
 	public static final String CONFIG_USER = "user";
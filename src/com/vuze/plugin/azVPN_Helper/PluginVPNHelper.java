@@ -20,9 +20,9 @@ package com.vuze.plugin.azVPN_Helper;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.Supplier;
 
 import com.biglybt.core.config.COConfigurationManager;
-import com.biglybt.core.util.AERunnable;
 import com.biglybt.ui.swt.pif.UISWTInstance;
 
 import com.biglybt.pif.PluginException;
@@ -45,6 +45,12 @@ public class PluginVPNHelper
 {
 	private static final boolean LOG_TO_STDOUT = false;
 
+	private static final int LOG_BUFFER_SIZE = 1024;
+
+	/**
+	 * Network and bind changes trigger their own checks, but the periodic
+	 * check is what notices a tunnel that dies with its interface still up
+	 */
 	private static final int DEFAULT_CHECK_EVERY_MINS = 2;
 
 	private static final String DEFAULT_VPN_IP_REGEX = "10\\.[0-9]+\\.[0-9]+\\.[0-9]+";
@@ -61,6 +67,10 @@ public class PluginVPNHelper
 
 	private static LoggerChannel logger;
 
+	private static volatile AsyncLog asyncLog;
+
+	private static volatile boolean logVerbose;
+
 	protected UIInstance uiInstance;
 
 	public static PluginVPNHelper instance;
@@ -79,7 +89,7 @@ public class PluginVPNHelper
 
 	private StringListParameter currentVPN;
 
-	protected List<CheckerListener> listeners = new ArrayList<CheckerListener>(1);
+	protected final CheckerEventBus eventBus = new CheckerEventBus();
 
 	private HashMap<String, ParameterGroup> mapVPNConfigParamGroup;
 
@@ -100,6 +110,15 @@ public class PluginVPNHelper
 		logger = pi.getLogger().getTimeStampedChannel(
 				PluginConstants.CONFIG_SECTION_ID);
 
+		startAsyncLog(new AsyncLog.Sink() {
+			@Override
+			public void write(long time, String s) {
+				writeLog(time, s);
+			}
+		});
+
+		CheckMetrics.get().registerMBeans();
+
 		model = uiManager.createLoggingViewModel(logger, true);
 		model.setConfigSectionID(PluginConstants.CONFIG_SECTION_ID);
 
@@ -203,14 +222,7 @@ public class PluginVPNHelper
 						PluginInterface.class).newInstance(pi);
 				checkerID = vpnID;
 
-				CheckerListener[] triggers = getCheckerListeners();
-				for (CheckerListener l : triggers) {
-					try {
-						l.checkerChanged(checker);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				}
+				eventBus.fireCheckerChanged(checker);
 
 			} catch (Throwable e) {
 				e.printStackTrace();
@@ -277,25 +289,11 @@ public class PluginVPNHelper
 						e.printStackTrace();
 					}
 				}
-				CheckerListener[] triggers = getCheckerListeners();
-				for (CheckerListener l : triggers) {
-					try {
-						l.checkerChanged(checker);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				}
+				eventBus.fireCheckerChanged(checker);
 
 				if (checker != null) {
 					checker.buildTimer();
-					pi.getUtilities().createThread("FirstVPNCheck", new AERunnable() {
-						@Override
-						public void runSupport() {
-							if (checker != null) {
-								checker.portBindingCheck();
-							}
-						}
-					});
+					checker.portBindingCheck();
 				}
 			}
 		});
@@ -321,12 +319,35 @@ public class PluginVPNHelper
 				PluginConstants.CONFIG_VPN_IP_MATCHING, DEFAULT_VPN_IP_REGEX);
 		paramRegex.setMinimumRequiredUserMode(StringParameter.MODE_ADVANCED);
 
+		StringParameter paramCIDR = configModel.addStringParameter2(
+				PluginConstants.CONFIG_VPN_IP_CIDR, PluginConstants.CONFIG_VPN_IP_CIDR,
+				"");
+		paramCIDR.setMinimumRequiredUserMode(StringParameter.MODE_ADVANCED);
+
 		StringParameter paramIgnoreAddress = configModel.addStringParameter2(
 				PluginConstants.CONFIG_IGNORE_ADDRESS,
 				PluginConstants.CONFIG_IGNORE_ADDRESS, "");
 		paramIgnoreAddress.setMinimumRequiredUserMode(
 				StringParameter.MODE_ADVANCED);
 
+		ParameterListener matcherListener = param -> {
+			if (checker != null) {
+				checker.invalidateVPNMatcher();
+			}
+		};
+		paramRegex.addListener(matcherListener);
+		paramCIDR.addListener(matcherListener);
+		paramIgnoreAddress.addListener(matcherListener);
+
+		BooleanParameter paramLogVerbose = configModel.addBooleanParameter2(
+				PluginConstants.CONFIG_LOG_VERBOSE,
+				PluginConstants.CONFIG_LOG_VERBOSE, false);
+		paramLogVerbose.setMinimumRequiredUserMode(
+				BooleanParameter.MODE_ADVANCED);
+		logVerbose = paramLogVerbose.getValue();
+		paramLogVerbose.addListener(
+				param -> logVerbose = paramLogVerbose.getValue());
+
 		mapVPNConfigParamGroup = new HashMap<>();
 
 		DirectoryParameter paramPortReadLocation = configModel.addDirectoryParameter2(
@@ -385,7 +406,11 @@ public class PluginVPNHelper
 			checker = null;
 		}
 
-		listeners.clear();
+		eventBus.destroy();
+
+		CheckMetrics.get().unregisterMBeans();
+
+		stopAsyncLog();
 	}
 
 	/* (non-Javadoc)
@@ -393,21 +418,23 @@ public class PluginVPNHelper
 	 */
 	@Override
 	public void initializationComplete() {
-		pi.getUtilities().createThread("FirstVPNCheck", new AERunnable() {
-			@Override
-			public void runSupport() {
-				if (checker == null) {
-					return;
-				}
-				try {
-					checker.portBindingCheck();
-					checker.calcProtocolAddresses();
-				} catch (Throwable t) {
-					t.printStackTrace();
+		final CheckerCommon firstChecker = checker;
+		if (firstChecker == null) {
+			return;
+		}
+		// Protocol addresses probe the network slowly; keep them off the check
+		// thread, and do them even if the first check failed
+		firstChecker.portBindingCheck().whenComplete((result, t) -> {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					firstChecker.calcProtocolAddresses();
 				}
-				checker.buildTimer();
-			}
+			}, "VPNHelper Protocol Addresses");
+			thread.setDaemon(true);
+			thread.start();
 		});
+		firstChecker.buildTimer();
 	}
 
 	/* (non-Javadoc)
@@ -458,11 +485,64 @@ public class PluginVPNHelper
 		if (s == null) {
 			return;
 		}
+		queueLog(s);
+	}
+
+	/**
+	 * @param s Only called if the line gets written, and not on this thread
+	 */
+	public static void log(Supplier<String> s) {
+		queueLog(s);
+	}
+
+	/**
+	 * Log detail that is only wanted when diagnosing.  s isn't called unless
+	 * verbose logging is on.
+	 */
+	public static void logVerbose(Supplier<String> s) {
+		if (logVerbose) {
+			queueLog(s);
+		}
+	}
+
+	public static boolean isLogVerbose() {
+		return logVerbose;
+	}
+
+	/**
+	 * Send log lines to sink from a background thread, until
+	 * {@link #stopAsyncLog()}
+	 */
+	static synchronized void startAsyncLog(AsyncLog.Sink sink) {
+		stopAsyncLog();
+		asyncLog = new AsyncLog(LOG_BUFFER_SIZE, sink);
+	}
+
+	static synchronized void stopAsyncLog() {
+		if (asyncLog != null) {
+			asyncLog.stop(1000);
+			asyncLog = null;
+		}
+	}
+
+	private static void queueLog(Object message) {
+		AsyncLog log = asyncLog;
+		if (log != null) {
+			log.log(message);
+			return;
+		}
+		// not initialized, or unloaded
+		String s = message instanceof Supplier ? ((Supplier<?>) message).get()
+				+ "" : message.toString();
+		writeLog(System.currentTimeMillis(), s);
+	}
+
+	private static void writeLog(long time, String s) {
 		if (s.endsWith("\n")) {
 			s = s.substring(0, s.length() - 1);
 		}
 		if (LOG_TO_STDOUT || logger == null) {
-			long offsetTime = System.currentTimeMillis() - initializedOn;
+			long offsetTime = time - initializedOn;
 			System.out.println(offsetTime + "] LOGGER: " + s);
 		}
 		if (logger == null) {
@@ -472,22 +552,23 @@ public class PluginVPNHelper
 	}
 
 	public final void addListener(CheckerListener l) {
-		listeners.add(l);
-		try {
-			if (checker != null) {
-				l.portCheckStatusChanged(checker.lastPortCheckStatus);
-				l.protocolAddressesStatusChanged(checker.lastProtocolAddresses);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
+		eventBus.add(l);
+		CheckerCommon currentChecker = checker;
+		if (currentChecker != null) {
+			eventBus.replay(l, currentChecker.lastPortCheckStatus,
+					currentChecker.lastProtocolAddresses);
 		}
 	}
 
 	public final void removeListener(CheckerListener l) {
-		listeners.remove(l);
+		eventBus.remove(l);
 	}
 
 	public CheckerListener[] getCheckerListeners() {
-		return listeners.toArray(new CheckerListener[0]);
+		return eventBus.getListeners();
+	}
+
+	public CheckerEventBus getEventBus() {
+		return eventBus;
 	}
 }
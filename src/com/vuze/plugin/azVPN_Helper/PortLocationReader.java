@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.InetAddress;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Reads the forwarded port from the user's "port read location" when it's a
+ * plain http(s) URL.  Everything else can push changes, and is handled by a
+ * {@link PortSource}.
+ * <p/>
+ * The last text read is kept, and the URL is fetched conditionally (ETag /
+ * Last-Modified), so an unchanged location costs one small request.
+ */
+public class PortLocationReader
+{
+	public static class Result
+	{
+		/** &gt; 0 when a port was found */
+		public final int port;
+
+		/** Reason no port was found, or null */
+		public final String error;
+
+		/** true if the location hadn't changed since the last read */
+		public final boolean unchanged;
+
+		Result(int port, String error, boolean unchanged) {
+			this.port = port;
+			this.error = error;
+			this.unchanged = unchanged;
+		}
+	}
+
+	private final HttpClientRegistry httpClients;
+
+	private String location;
+
+	private String text;
+
+	private String etag;
+
+	private String lastModifiedHeader;
+
+	private String regex;
+
+	private Pattern pattern;
+
+	private String parsedText;
+
+	private Result parsedResult;
+
+	public PortLocationReader(HttpClientRegistry httpClients) {
+		this.httpClients = httpClients;
+	}
+
+	/**
+	 * @param regex Group 1 (or the whole match) is the port.  Empty to use
+	 * the whole text
+	 */
+	public synchronized Result read(String location, String regex,
+			InetAddress bindIP) {
+		if (!location.equals(this.location)) {
+			invalidate();
+			this.location = location;
+		}
+
+		boolean unchanged;
+		try {
+			unchanged = fetch(location, bindIP);
+		} catch (Throwable t) {
+			text = null;
+			return new Result(0, t.toString(), false);
+		}
+
+		Result result = parse(text, regex);
+		return new Result(result.port, result.error, unchanged);
+	}
+
+	/**
+	 * Forget the last text read, so the next read fetches it in full
+	 */
+	public synchronized void invalidate() {
+		text = null;
+		etag = null;
+		lastModifiedHeader = null;
+	}
+
+	/**
+	 * @return true if the server said the text hasn't changed
+	 */
+	private boolean fetch(String url, InetAddress bindIP)
+			throws Exception {
+		HttpGet get = new HttpGet(url);
+		RequestConfig requestConfig = RequestConfig.custom().setLocalAddress(
+				bindIP).setConnectTimeout(15000).setSocketTimeout(15000).build();
+		get.setConfig(requestConfig);
+		if (text != null) {
+			if (etag != null) {
+				get.setHeader("If-None-Match", etag);
+			}
+			if (lastModifiedHeader != null) {
+				get.setHeader("If-Modified-Since", lastModifiedHeader);
+			}
+		}
+
+		CloseableHttpResponse response = httpClients.get(bindIP).execute(get);
+		try {
+			int code = response.getStatusLine().getStatusCode();
+			if (code == HttpStatus.SC_NOT_MODIFIED && text != null) {
+				EntityUtils.consume(response.getEntity());
+				return true;
+			}
+			String body = response.getEntity() == null ? ""
+					: EntityUtils.toString(response.getEntity(), "utf8");
+			if (code >= 400) {
+				text = null;
+				throw new Exception(response.getStatusLine().toString());
+			}
+			Header header = response.getFirstHeader("ETag");
+			etag = header == null ? null : header.getValue();
+			header = response.getFirstHeader("Last-Modified");
+			lastModifiedHeader = header == null ? null : header.getValue();
+			if (body.equals(text)) {
+				return true;
+			}
+			text = body;
+			return false;
+		} finally {
+			response.close();
+		}
+	}
+
+	private Result parse(String textToParse, String regex) {
+		// text is only replaced when it changes, so identity is enough
+		if (textToParse == parsedText && regex.equals(this.regex)) {
+			return parsedResult;
+		}
+		if (!regex.equals(this.regex)) {
+			try {
+				pattern = regex.isEmpty() ? null : Pattern.compile(regex);
+			} catch (PatternSyntaxException e) {
+				this.regex = null;
+				return new Result(0, e.getMessage(), false);
+			}
+			this.regex = regex;
+		}
+
+		int port = PortSource.parsePort(pattern, textToParse);
+		Result result = new Result(port,
+				port > 0 ? null : PortSource.getNoPortError(textToParse), false);
+		parsedText = textToParse;
+		parsedResult = result;
+		return result;
+	}
+}
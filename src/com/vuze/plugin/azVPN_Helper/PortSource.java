@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Somewhere that pushes the forwarded port to us as soon as it changes.
+ * Created from the port read location:
+ * <ul>
+ * <li><code>unix:&lt;socket path&gt;</code> - a Unix domain socket; each line
+ * received is checked for a port.  Needs Java 16</li>
+ * <li><code>longpoll+http(s)://...</code> - an endpoint that holds the request
+ * until the port changes</li>
+ * <li>anything else that isn't an http(s) URL - a file (gluetun's
+ * forwarded_port, for example), read again whenever it changes</li>
+ * </ul>
+ * Plain http(s) URLs can't push, and are left to {@link PortLocationReader}.
+ */
+public abstract class PortSource
+{
+	public interface Listener
+	{
+		/**
+		 * Called on the source's own thread when a different port is received
+		 */
+		void portChanged(PortSource source, int port);
+	}
+
+	public static final String PREFIX_UNIX_SOCKET = "unix:";
+
+	public static final String PREFIX_LONG_POLL = "longpoll+";
+
+	protected static final long MIN_RETRY_MS = 1000;
+
+	protected static final long MAX_RETRY_MS = 60 * 1000L;
+
+	protected final String location;
+
+	private final String regex;
+
+	private final Pattern pattern;
+
+	private final Listener listener;
+
+	private volatile int lastPort;
+
+	private volatile String lastError;
+
+	protected PortSource(String location, String regex, Listener listener) {
+		this.location = location;
+		this.regex = regex;
+		this.listener = listener;
+		Pattern compiled = null;
+		if (!regex.isEmpty()) {
+			try {
+				compiled = Pattern.compile(regex);
+			} catch (PatternSyntaxException e) {
+				lastError = e.getMessage();
+			}
+		}
+		pattern = compiled;
+	}
+
+	/**
+	 * @return null if location can't push (a plain http(s) URL)
+	 */
+	public static PortSource create(String location, String regex,
+			ScheduledExecutorService scheduler, HttpClientRegistry httpClients,
+			Listener listener) {
+		if (location.startsWith(PREFIX_UNIX_SOCKET)) {
+			return new UnixSocketPortSource(location, regex, listener);
+		}
+		if (location.startsWith(PREFIX_LONG_POLL)) {
+			return new LongPollPortSource(location, regex, httpClients, listener);
+		}
+		if (location.startsWith("http")) {
+			return null;
+		}
+		return new FilePortSource(location, regex, scheduler, listener);
+	}
+
+	/**
+	 * Start listening.  May wait briefly for the first port.
+	 */
+	public abstract void start();
+
+	public abstract void stop();
+
+	public String getLocation() {
+		return location;
+	}
+
+	public String getRegex() {
+		return regex;
+	}
+
+	/**
+	 * @return Last port received, or 0 if none yet
+	 */
+	public int getLastPort() {
+		return lastPort;
+	}
+
+	/**
+	 * @return Why there's no port, or null
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * The source couldn't be read, so the last port can't be trusted either
+	 */
+	protected void setError(String error) {
+		lastError = error;
+		lastPort = 0;
+	}
+
+	/**
+	 * Look for a port in text, and tell the listener if it changed
+	 *
+	 * @param whole true if text is the whole content (a file, a response)
+	 * rather than one line of a stream.  Only whole content that has no port
+	 * is reported as an error, and forgets the last port.
+	 */
+	protected void received(String text, boolean whole) {
+		if (regex.length() > 0 && pattern == null) {
+			// bad regex, error already set
+			return;
+		}
+		int port = parsePort(pattern, text);
+		if (port == 0) {
+			if (whole) {
+				lastError = getNoPortError(text);
+				lastPort = 0;
+			}
+			return;
+		}
+
+		lastError = null;
+		if (port == lastPort) {
+			return;
+		}
+		lastPort = port;
+		PluginVPNHelper.log("Port " + port + " from " + location);
+		try {
+			listener.portChanged(this, port);
+		} catch (Throwable t) {
+			t.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param pattern Group 1 (or the whole match) is the port.  null to use
+	 * the whole text
+	 * @return Port found in text, or 0 if there's none in 1..65535
+	 */
+	static int parsePort(Pattern pattern, String text) {
+		String portString = null;
+		if (pattern == null) {
+			portString = text;
+		} else {
+			Matcher matcher = pattern.matcher(text);
+			if (matcher.find()) {
+				portString = matcher.groupCount() > 0 ? matcher.group(1)
+						: matcher.group();
+			}
+		}
+		if (portString == null) {
+			return 0;
+		}
+		try {
+			int port = Integer.parseInt(portString.trim());
+			return port > 0 && port <= 65535 ? port : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	static String getNoPortError(String text) {
+		return "No port in '" + text + "'";
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + location + "]";
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.*;
+
+import com.biglybt.core.util.Debug;
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Keeps a long running command (like "piactl monitor") alive and feeds its
+ * output, line by line, to a listener.
+ * <p/>
+ * The process counts as ready once it has written its first line.  When it
+ * exits, it's restarted after a delay that doubles with each quick exit, so
+ * a command that keeps failing doesn't spin.
+ */
+public class ProcessSupervisor
+{
+	public interface LineListener
+	{
+		/**
+		 * Called on the process' reader thread
+		 */
+		void lineReceived(String line);
+	}
+
+	private static final long MIN_BACKOFF_MS = 1000;
+
+	private static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+
+	/** Running at least this long resets the backoff */
+	private static final long STABLE_MS = 60 * 1000L;
+
+	private final String name;
+
+	private final String[] command;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final LineListener listener;
+
+	private Process process;
+
+	private CountDownLatch readyLatch;
+
+	private ScheduledFuture<?> pendingRestart;
+
+	private long backoffMS = MIN_BACKOFF_MS;
+
+	private long startedOn;
+
+	private volatile long lastLineOn = -1;
+
+	private volatile String lastLine;
+
+	private int startCount;
+
+	private boolean stopped;
+
+	public ProcessSupervisor(String name, String[] command,
+			ScheduledExecutorService scheduler, LineListener listener) {
+		this.name = name;
+		this.command = command;
+		this.scheduler = scheduler;
+		this.listener = listener;
+	}
+
+	/**
+	 * Start the process if it isn't running or waiting to restart, and wait for
+	 * its first line.
+	 *
+	 * @return true if the process has written at least one line
+	 */
+	public boolean start(long readyTimeoutMS)
+			throws IOException {
+		CountDownLatch latch;
+		synchronized (this) {
+			stopped = false;
+			if (process == null && pendingRestart == null) {
+				launch();
+			}
+			latch = readyLatch;
+		}
+		if (latch == null) {
+			return false;
+		}
+		try {
+			return latch.await(readyTimeoutMS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public synchronized void stop() {
+		stopped = true;
+		if (pendingRestart != null) {
+			pendingRestart.cancel(false);
+			pendingRestart = null;
+		}
+		if (process != null) {
+			process.destroy();
+			process = null;
+		}
+	}
+
+	public synchronized boolean isRunning() {
+		return process != null && process.isAlive();
+	}
+
+	/**
+	 * @return true if the current process has written a line
+	 */
+	public synchronized boolean isReady() {
+		return readyLatch != null && readyLatch.getCount() == 0;
+	}
+
+	/**
+	 * @return Times the process was started again after exiting
+	 */
+	public synchronized int getRestartCount() {
+		return Math.max(0, startCount - 1);
+	}
+
+	/**
+	 * @return ms since the last line, or -1 if there hasn't been one
+	 */
+	public long getLastLineAge() {
+		long on = lastLineOn;
+		return on < 0 ? -1 : SystemTime.getMonotonousTime() - on;
+	}
+
+	public String getLastLine() {
+		return lastLine;
+	}
+
+	private void launch()
+			throws IOException {
+		final Process newProcess = Runtime.getRuntime().exec(command);
+		final CountDownLatch latch = new CountDownLatch(1);
+		process = newProcess;
+		readyLatch = latch;
+		startedOn = SystemTime.getMonotonousTime();
+		startCount++;
+
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					BufferedReader br = new BufferedReader(
+							new InputStreamReader(newProcess.getInputStream()));
+					String line;
+					while ((line = br.readLine()) != null) {
+						lastLine = line;
+						lastLineOn = SystemTime.getMonotonousTime();
+						latch.countDown();
+						try {
+							listener.lineReceived(line);
+						} catch (Throwable t) {
+							t.printStackTrace();
+						}
+					}
+				} catch (IOException e) {
+					PluginVPNHelper.log(
+							name + " error: " + Debug.getNestedExceptionMessage(e));
+				}
+				exited(newProcess);
+			}
+		}, name);
+		reader.setDaemon(true);
+		reader.start();
+
+		// A full stderr pipe would block the process, and with it stdout
+		Thread errorReader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					BufferedReader br = new BufferedReader(
+							new InputStreamReader(newProcess.getErrorStream()));
+					String line;
+					while ((line = br.readLine()) != null) {
+						PluginVPNHelper.log(name + " stderr: " + line);
+					}
+				} catch (IOException e) {
+					// closed by exited()
+				}
+			}
+		}, name + " stderr");
+		errorReader.setDaemon(true);
+		errorReader.start();
+	}
+
+	private synchronized void exited(Process exitedProcess) {
+		// stdout may close before the process ends; don't leave it running
+		exitedProcess.destroy();
+		if (process != exitedProcess) {
+			// stopped, or already replaced
+			return;
+		}
+		process = null;
+		readyLatch = null;
+		if (stopped) {
+			return;
+		}
+		if (SystemTime.getMonotonousTime() - startedOn >= STABLE_MS) {
+			backoffMS = MIN_BACKOFF_MS;
+		}
+		PluginVPNHelper.log(name + " exited, restarting in " + backoffMS + "ms");
+		scheduleRestart();
+	}
+
+	private void scheduleRestart() {
+		long delay = backoffMS;
+		backoffMS = Math.min(MAX_BACKOFF_MS, backoffMS * 2);
+		try {
+			pendingRestart = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (ProcessSupervisor.this) {
+						pendingRestart = null;
+						if (stopped || process != null) {
+							return;
+						}
+						try {
+							launch();
+						} catch (IOException e) {
+							PluginVPNHelper.log(name + " restart failed, retrying in "
+									+ backoffMS + "ms: " + Debug.getNestedExceptionMessage(e));
+							scheduleRestart();
+						}
+					}
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// scheduler shut down
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Remembers canReach results per (bind address, host) so steady state checks
+ * don't hit the network.
+ * <p/>
+ * Failures expire sooner than successes, so a recovering tunnel is noticed
+ * quickly.
+ */
+public class ReachabilityCache
+{
+	private final long positiveTTL;
+
+	private final long negativeTTL;
+
+	private final Map<Key, Entry> map = new HashMap<>();
+
+	public ReachabilityCache(long positiveTTL, long negativeTTL) {
+		this.positiveTTL = positiveTTL;
+		this.negativeTTL = negativeTTL;
+	}
+
+	/**
+	 * @return cached result, or null if there isn't one or it expired
+	 */
+	public synchronized Boolean get(InetAddress bindAddress, String host) {
+		Key key = new Key(bindAddress, host);
+		Entry entry = map.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (SystemTime.getMonotonousTime() >= entry.expiresOn) {
+			map.remove(key);
+			return null;
+		}
+		return entry.reachable;
+	}
+
+	public synchronized void put(InetAddress bindAddress, String host,
+			boolean reachable) {
+		long ttl = reachable ? positiveTTL : negativeTTL;
+		map.put(new Key(bindAddress, host),
+				new Entry(reachable, SystemTime.getMonotonousTime() + ttl));
+	}
+
+	public synchronized void invalidate() {
+		map.clear();
+	}
+
+	private static class Entry
+	{
+		final boolean reachable;
+
+		final long expiresOn;
+
+		Entry(boolean reachable, long expiresOn) {
+			this.reachable = reachable;
+			this.expiresOn = expiresOn;
+		}
+	}
+
+	private static class Key
+	{
+		final InetAddress bindAddress;
+
+		final String host;
+
+		Key(InetAddress bindAddress, String host) {
+			this.bindAddress = bindAddress;
+			this.host = host;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return (bindAddress == null ? other.bindAddress == null
+					: bindAddress.equals(other.bindAddress))
+					&& (host == null ? other.host == null : host.equals(other.host));
+		}
+
+		@Override
+		public int hashCode() {
+			return (bindAddress == null ? 0 : bindAddress.hashCode()) * 31
+					+ (host == null ? 0 : host.hashCode());
+		}
+	}
+}
@@ -51,6 +51,8 @@ public class SBC_VPNHelper
 
 	private SWTSkinObjectText soPFStatus;
 
+	private SWTSkinObjectText soPFTiming;
+
 	private SWTSkinObjectButton soPFButton;
 
 	private SWTSkinButtonUtility btnPFCheck;
@@ -131,21 +133,20 @@ public class SBC_VPNHelper
 		});
 		controlStatus.setMenu(clipMenuPF);
 
+		soPFTiming = (SWTSkinObjectText) getSkinObject("port-forwarding-timing");
+
 		soPFButton = (SWTSkinObjectButton) getSkinObject("port-forwarding-button");
 		btnPFCheck = new SWTSkinButtonUtility(soPFButton);
 		soPFButton.addSelectionListener(new ButtonListenerAdapter() {
 			@Override
 			public void pressed(SWTSkinButtonUtility buttonUtility,
 					SWTSkinObject skinObject, int stateMask) {
-				Utils.getOffOfSWTThread(new AERunnable() {
-					@Override
-					public void runSupport() {
-						if (PluginVPNHelper.instance.checker == null) {
-							return;
-						}
-						PluginVPNHelper.instance.checker.portBindingCheck();
-					}
-				});
+				CheckerCommon checker = PluginVPNHelper.instance.checker;
+				if (checker == null) {
+					return;
+				}
+				checker.invalidateCaches();
+				checker.portBindingCheck();
 			}
 		});
 
@@ -182,22 +183,62 @@ public class SBC_VPNHelper
 	}
 
 	/* (non-Javadoc)
-	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#portCheckStatusChanged(java.lang.String)
+	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#portCheckStatusChanged(com.vuze.plugin.azVPN_Helper.StatusReport)
 	 */
 	@Override
-	public void portCheckStatusChanged(String status) {
-		soPFStatus.setText(status);
-		if (btnPFCheck != null) {
-			btnPFCheck.setDisabled(false);
+	public void portCheckStatusChanged(final StatusReport status) {
+		Utils.execSWTThread(new AERunnable() {
+			@Override
+			public void runSupport() {
+				soPFStatus.setText(status.getText());
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#portCheckDone()
+	 */
+	@Override
+	public void portCheckDone() {
+		Utils.execSWTThread(new AERunnable() {
+			@Override
+			public void runSupport() {
+				if (btnPFCheck != null) {
+					btnPFCheck.setDisabled(false);
+				}
+				updateTiming();
+			}
+		});
+	}
+
+	/**
+	 * Per-phase check timings, shown under the status rather than in it
+	 */
+	private void updateTiming() {
+		if (soPFTiming == null) {
+			return;
+		}
+		String summary = CheckMetrics.get().getSummary();
+		if (summary.isEmpty()) {
+			soPFTiming.setText("");
+		} else {
+			soPFTiming.setTextID("vpnhelper.check.timing", new String[] {
+				summary
+			});
 		}
 	}
 
 	/* (non-Javadoc)
-	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#protocolAddressesStatusChanged(java.lang.String)
+	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#protocolAddressesStatusChanged(com.vuze.plugin.azVPN_Helper.StatusReport)
 	 */
 	@Override
-	public void protocolAddressesStatusChanged(String status) {
-		soAddresses.setText(status);
+	public void protocolAddressesStatusChanged(final StatusReport status) {
+		Utils.execSWTThread(new AERunnable() {
+			@Override
+			public void runSupport() {
+				soAddresses.setText(status.getText());
+			}
+		});
 	}
 
 	/* (non-Javadoc)
@@ -205,19 +246,29 @@ public class SBC_VPNHelper
 	 */
 	@Override
 	public void portCheckStart() {
-		if (btnPFCheck != null) {
-			btnPFCheck.setDisabled(true);
-		}
+		Utils.execSWTThread(new AERunnable() {
+			@Override
+			public void runSupport() {
+				if (btnPFCheck != null) {
+					btnPFCheck.setDisabled(true);
+				}
+			}
+		});
 	}
 
 	/* (non-Javadoc)
 	 * @see com.vuze.plugin.azVPN_Helper.CheckerListener#checkerChanged(com.vuze.plugin.azVPN_Helper.CheckerCommon)
 	 */
 	@Override
-	public void checkerChanged(CheckerCommon checker) {
-		soPFStatus.setTextID(checker == null ? "vpnhelper.select.vpn" : null); 
-		btnPFCheck.setDisabled(checker == null);
-		soAddresses.setText("");
+	public void checkerChanged(final CheckerCommon checker) {
+		Utils.execSWTThread(new AERunnable() {
+			@Override
+			public void runSupport() {
+				soPFStatus.setTextID(checker == null ? "vpnhelper.select.vpn" : null);
+				btnPFCheck.setDisabled(checker == null);
+				soAddresses.setText("");
+			}
+		});
 	}
 
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.biglybt.core.util.SystemTime;
+
+import com.biglybt.pif.utils.LocaleUtilities;
+
+/**
+ * Result lines of a check, kept as message keys and parameters.
+ * <p/>
+ * Nothing is localised until {@link #getText()} (or
+ * {@link Entry#render(LocaleUtilities)}) is called, and the full text is
+ * built at most once per change.
+ */
+public class StatusReport
+{
+	public enum Severity {
+		NONE((char) 0),
+		GOOD('\u2714'),
+		WARN('\u2318'),
+		BAD('\u2716');
+
+		public final char prefix;
+
+		Severity(char prefix) {
+			this.prefix = prefix;
+		}
+
+		public static Severity fromPrefix(char prefix) {
+			for (Severity severity : values()) {
+				if (severity.prefix == prefix) {
+					return severity;
+				}
+			}
+			return NONE;
+		}
+	}
+
+	private final LocaleUtilities texts;
+
+	private final long startedOn = SystemTime.getMonotonousTime();
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	private String text;
+
+	public StatusReport(LocaleUtilities texts) {
+		this.texts = texts;
+	}
+
+	public Entry add(Severity severity, String key, String... params) {
+		Entry entry = new Entry(severity, key, null, params);
+		add(entry);
+		return entry;
+	}
+
+	public Entry addLiteral(Severity severity, String literal) {
+		Entry entry = new Entry(severity, null, literal, null);
+		add(entry);
+		return entry;
+	}
+
+	public synchronized void add(Entry entry) {
+		entry.offsetMs = SystemTime.getMonotonousTime() - startedOn;
+		entries.add(entry);
+		text = null;
+	}
+
+	/**
+	 * Add entries from another report, keeping their original timing
+	 */
+	public synchronized void addAll(List<Entry> list) {
+		entries.addAll(list);
+		text = null;
+	}
+
+	public synchronized void insertFirst(Entry entry) {
+		entries.add(0, entry);
+		text = null;
+	}
+
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(entries);
+	}
+
+	public synchronized Severity getWorstSeverity() {
+		Severity worst = Severity.NONE;
+		for (Entry entry : entries) {
+			if (entry.severity == Severity.BAD) {
+				return Severity.BAD;
+			}
+			if (entry.severity == Severity.WARN
+					|| (entry.severity == Severity.GOOD && worst == Severity.NONE)) {
+				worst = entry.severity;
+			}
+		}
+		return worst;
+	}
+
+	public LocaleUtilities getTexts() {
+		return texts;
+	}
+
+	/**
+	 * @return Localised report, one entry per line
+	 */
+	public synchronized String getText() {
+		if (text == null) {
+			StringBuilder sb = new StringBuilder();
+			for (Entry entry : entries) {
+				sb.append(entry.render(texts)).append('\n');
+			}
+			text = sb.toString();
+		}
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return getText();
+	}
+
+	public static class Entry
+	{
+		private Severity severity;
+
+		private final String key;
+
+		private final String literal;
+
+		private final String[] params;
+
+		private List<String> extraKeys;
+
+		private InetAddress address;
+
+		private String interfaceLabel;
+
+		private long offsetMs;
+
+		/**
+		 * Entry to be filled in and added with {@link StatusReport#add(Entry)}
+		 */
+		public Entry(Severity severity, String key, String... params) {
+			this(severity, key, null, params);
+		}
+
+		private Entry(Severity severity, String key, String literal,
+				String[] params) {
+			this.severity = severity;
+			this.key = key;
+			this.literal = literal;
+			this.params = params == null ? new String[0] : params;
+		}
+
+		public Entry setSeverity(Severity severity) {
+			this.severity = severity;
+			return this;
+		}
+
+		/**
+		 * Add a parameterless message to the end of this line
+		 */
+		public Entry append(String key) {
+			if (extraKeys == null) {
+				extraKeys = new ArrayList<>(3);
+			}
+			extraKeys.add(key);
+			return this;
+		}
+
+		public Entry setInterface(InetAddress address, String interfaceLabel) {
+			this.address = address;
+			this.interfaceLabel = interfaceLabel;
+			return this;
+		}
+
+		public Severity getSeverity() {
+			return severity;
+		}
+
+		/**
+		 * @return null for literal entries
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		public String[] getParams() {
+			return params.clone();
+		}
+
+		public List<String> getExtraKeys() {
+			return extraKeys == null ? new ArrayList<String>()
+					: new ArrayList<>(extraKeys);
+		}
+
+		public InetAddress getAddress() {
+			return address;
+		}
+
+		public String getInterfaceLabel() {
+			return interfaceLabel;
+		}
+
+		/**
+		 * @return ms after the report was started that this entry was added
+		 */
+		public long getOffsetMs() {
+			return offsetMs;
+		}
+
+		public String render(LocaleUtilities texts) {
+			StringBuilder sb = new StringBuilder();
+			if (severity.prefix != 0) {
+				sb.append(severity.prefix).append(' ');
+			}
+			if (key == null) {
+				sb.append(literal);
+			} else {
+				sb.append(localise(texts, key, params));
+			}
+			if (extraKeys != null) {
+				for (String extraKey : extraKeys) {
+					sb.append(' ').append(localise(texts, extraKey, null));
+				}
+			}
+			return sb.toString();
+		}
+
+		private static String localise(LocaleUtilities texts, String key,
+				String[] params) {
+			boolean hasParams = params != null && params.length > 0;
+			if (texts == null) {
+				return "!" + key + "!" + (hasParams ? Arrays.toString(params) : "");
+			}
+			return hasParams ? texts.getLocalisedMessageText(key, params)
+					: texts.getLocalisedMessageText(key);
+		}
+	}
+}
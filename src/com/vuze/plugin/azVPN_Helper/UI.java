@@ -204,11 +204,11 @@ public class UI
 	}
 
 	@Override
-	public void protocolAddressesStatusChanged(String status) {
+	public void protocolAddressesStatusChanged(StatusReport status) {
 	}
 
 	@Override
-	public void portCheckStatusChanged(String status) {
+	public void portCheckStatusChanged(StatusReport status) {
 		if (mdiEntry != null) {
 			mdiEntry.redraw();
 		}
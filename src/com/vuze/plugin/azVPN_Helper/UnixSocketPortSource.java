@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+import com.biglybt.core.util.Debug;
+
+/**
+ * Port from a Unix domain socket.  Every line received is checked for a port.
+ * Reconnects, with backoff, when the other end closes.
+ * <p/>
+ * Unix domain SocketChannels arrived in Java 16, so they're reached through
+ * reflection; on older Javas this source only reports an error.
+ */
+public class UnixSocketPortSource
+	extends PortSource
+{
+	private final String path;
+
+	private volatile boolean stopped;
+
+	private Thread thread;
+
+	private SocketChannel channel;
+
+	public UnixSocketPortSource(String location, String regex,
+			Listener listener) {
+		super(location, regex, listener);
+		path = location.substring(PREFIX_UNIX_SOCKET.length()).trim();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		stopped = false;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readLoop();
+			}
+		}, "VPNHelper Port Socket");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void stop() {
+		SocketChannel toClose;
+		synchronized (this) {
+			stopped = true;
+			toClose = channel;
+			channel = null;
+			if (thread != null) {
+				thread.interrupt();
+				thread = null;
+			}
+		}
+		if (toClose != null) {
+			try {
+				toClose.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private void readLoop() {
+		long retryMS = MIN_RETRY_MS;
+		while (!stopped) {
+			try {
+				SocketChannel newChannel = open();
+				synchronized (this) {
+					if (stopped) {
+						newChannel.close();
+						return;
+					}
+					channel = newChannel;
+				}
+				BufferedReader br = new BufferedReader(
+						new InputStreamReader(Channels.newInputStream(newChannel), "utf8"));
+				String line;
+				while ((line = br.readLine()) != null) {
+					retryMS = MIN_RETRY_MS;
+					received(line, false);
+				}
+				newChannel.close();
+			} catch (UnsupportedOperationException e) {
+				setError("Unix domain sockets need Java 16 or newer");
+				return;
+			} catch (Throwable t) {
+				if (stopped) {
+					return;
+				}
+				setError(Debug.getNestedExceptionMessage(t));
+			}
+
+			try {
+				Thread.sleep(retryMS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			retryMS = Math.min(MAX_RETRY_MS, retryMS * 2);
+		}
+	}
+
+	private SocketChannel open()
+			throws Exception {
+		Method methodOf;
+		Method methodOpen;
+		try {
+			Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+			methodOf = addressClass.getMethod("of", String.class);
+			methodOpen = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new UnsupportedOperationException(e);
+		}
+		SocketAddress address = (SocketAddress) methodOf.invoke(null, path);
+		ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+		SocketChannel newChannel = (SocketChannel) methodOpen.invoke(null, unix);
+		try {
+			newChannel.connect(address);
+		} catch (IOException e) {
+			newChannel.close();
+			throw e;
+		}
+		return newChannel;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled form of {@link PluginConstants#CONFIG_VPN_IP_MATCHING},
+ * {@link PluginConstants#CONFIG_VPN_IP_CIDR} and
+ * {@link PluginConstants#CONFIG_IGNORE_ADDRESS}.
+ * <p/>
+ * An address is a VPN address if it is in one of the CIDR ranges or matches
+ * the regex.  The ignore list may hold addresses, interface names, or CIDR
+ * ranges.
+ */
+public class VPNAddressMatcher
+{
+	private final Set<String> excludes = new HashSet<>();
+
+	private final PrefixTrie excludedRanges = new PrefixTrie();
+
+	private final PrefixTrie vpnRanges = new PrefixTrie();
+
+	private final Pattern pattern;
+
+	public VPNAddressMatcher(String ignoreList, String regex, String cidrList) {
+		if (ignoreList != null) {
+			for (String exclude : ignoreList.split(";")) {
+				exclude = exclude.trim();
+				if (exclude.isEmpty()) {
+					continue;
+				}
+				if (!addRange(excludedRanges, exclude)) {
+					excludes.add(exclude);
+				}
+			}
+		}
+
+		if (cidrList != null) {
+			for (String cidr : cidrList.split(";")) {
+				cidr = cidr.trim();
+				if (!cidr.isEmpty() && !addRange(vpnRanges, cidr)) {
+					PluginVPNHelper.log("Invalid CIDR range '" + cidr + "'");
+				}
+			}
+		}
+
+		Pattern compiled = null;
+		if (regex != null && !regex.isEmpty()) {
+			try {
+				compiled = Pattern.compile(regex);
+			} catch (PatternSyntaxException e) {
+				PluginVPNHelper.log("Invalid VPN IP Regex: " + e.getMessage());
+			}
+		}
+		pattern = compiled;
+	}
+
+	/**
+	 * @return true if address is listed in the ignore list, directly or by range
+	 */
+	public boolean isExcludedAddress(InetAddress address) {
+		if (!excludes.isEmpty() && excludes.contains(address.getHostAddress())) {
+			return true;
+		}
+		return (address instanceof Inet4Address)
+				&& excludedRanges.contains(toInt(address));
+	}
+
+	public boolean hasInterfaceExcludes() {
+		return !excludes.isEmpty();
+	}
+
+	public boolean isExcludedInterface(String name) {
+		return name != null && excludes.contains(name);
+	}
+
+	/**
+	 * @return true if address looks like a VPN address.  Ignore list not checked
+	 */
+	public boolean matchesVPN(InetAddress address) {
+		if ((address instanceof Inet4Address)
+				&& vpnRanges.contains(toInt(address))) {
+			return true;
+		}
+		return pattern != null && pattern.matcher(address.getHostAddress()).matches();
+	}
+
+	private static int toInt(InetAddress address) {
+		byte[] bytes = address.getAddress();
+		return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16)
+				| ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+	}
+
+	/**
+	 * @return false if s isn't an IPv4 CIDR range
+	 */
+	private static boolean addRange(PrefixTrie trie, String s) {
+		int slash = s.indexOf('/');
+		if (slash <= 0) {
+			return false;
+		}
+		int prefixLength;
+		try {
+			prefixLength = Integer.parseInt(s.substring(slash + 1));
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		if (prefixLength < 0 || prefixLength > 32) {
+			return false;
+		}
+		String[] octets = s.substring(0, slash).split("\\.");
+		if (octets.length != 4) {
+			return false;
+		}
+		int ip = 0;
+		for (String octet : octets) {
+			int value;
+			try {
+				value = Integer.parseInt(octet);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+			if (value < 0 || value > 255) {
+				return false;
+			}
+			ip = (ip << 8) | value;
+		}
+		trie.add(ip, prefixLength);
+		return true;
+	}
+
+	/**
+	 * Binary trie of IPv4 prefixes.  Lookup walks at most 32 nodes.
+	 */
+	private static class PrefixTrie
+	{
+		private final Node root = new Node();
+
+		private boolean empty = true;
+
+		void add(int ip, int prefixLength) {
+			Node node = root;
+			for (int i = 0; i < prefixLength && !node.terminal; i++) {
+				int bit = (ip >>> (31 - i)) & 1;
+				if (node.children[bit] == null) {
+					node.children[bit] = new Node();
+				}
+				node = node.children[bit];
+			}
+			node.terminal = true;
+			// Anything below is covered by this broader prefix
+			node.children[0] = null;
+			node.children[1] = null;
+			empty = false;
+		}
+
+		boolean contains(int ip) {
+			if (empty) {
+				return false;
+			}
+			Node node = root;
+			for (int i = 0; i < 32; i++) {
+				if (node.terminal) {
+					return true;
+				}
+				node = node.children[(ip >>> (31 - i)) & 1];
+				if (node == null) {
+					return false;
+				}
+			}
+			return node.terminal;
+		}
+	}
+
+	private static class Node
+	{
+		final Node[] children = new Node[2];
+
+		boolean terminal;
+	}
+}
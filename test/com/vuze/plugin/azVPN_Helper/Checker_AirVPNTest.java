@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) Azureus Software, Inc, All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.vuze.plugin.azVPN_Helper;
+
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.biglybt.pif.PluginConfig;
+
+/**
+ * Drives {@link Checker_AirVPN#getUserInfo(InetAddress, String)} against a
+ * stand-in for the AirVPN userinfo API on the loopback address.  Not part of
+ * the plugin jar (test/ is a separate source folder).
+ * <p/>
+ * Build and run against a BiglyBT jar:
+ * <pre>
+ * javac -cp BiglyBT.jar:lib/* -d bin-test $(find src test -name "*.java")
+ * java -cp bin-test:BiglyBT.jar:lib/* com.vuze.plugin.azVPN_Helper.Checker_AirVPNTest
+ * </pre>
+ * Exits with 1 on the first failed check.
+ */
+public class Checker_AirVPNTest
+{
+	private static final String REPLY_OK = "{\"user\":{\"login\":\"someone\"},"
+			+ "\"sessions\":[{\"vpn_ipv4\":\"10.4.0.2\",\"vpn_ipv6\":\"fde6:7a:7d20:4::2\"}],"
+			+ "\"ports\":[{\"port\":51234,\"enabled\":true},"
+			+ "{\"port\":40000,\"enabled\":false},\"41000\",0]}";
+
+	private static final String REPLY_REFUSED = "{\"result\":\"Not authorized.\"}";
+
+	private static volatile String reply;
+
+	private static volatile int requestCount;
+
+	private static volatile String lastAPIKey;
+
+	private static volatile String lastQuery;
+
+	public static void main(String[] args)
+			throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		HttpServer server = HttpServer.create(new InetSocketAddress(loopback, 0),
+				0);
+		server.createContext("/api/userinfo/", exchange -> {
+			requestCount++;
+			lastAPIKey = exchange.getRequestHeaders().getFirst("API-KEY");
+			lastQuery = exchange.getRequestURI().getQuery();
+			byte[] body = reply.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		});
+		server.start();
+
+		Checker_AirVPN checker = new Checker_AirVPN();
+		checker.config = createConfig("http://127.0.0.1:"
+				+ server.getAddress().getPort() + "/api/userinfo/");
+		try {
+			reply = REPLY_OK;
+			Checker_AirVPN.UserInfo userInfo = checker.getUserInfo(loopback, "key1");
+			check("one request", requestCount == 1);
+			check("API key sent in header", "key1".equals(lastAPIKey));
+			check("asked for json", lastQuery != null
+					&& Arrays.asList(lastQuery.split("&")).contains("format=json"));
+			check("no error", userInfo.error == null);
+			check("session addresses", userInfo.sessionVPNIPs.equals(
+					Arrays.asList("10.4.0.2", "fde6:7a:7d20:4::2")));
+			check("enabled ports only", userInfo.ports.equals(
+					Arrays.asList(51234, 41000)));
+
+			checker.getUserInfo(loopback, "key1");
+			check("second ask answered from cache", requestCount == 1);
+
+			reply = REPLY_REFUSED;
+			userInfo = checker.getUserInfo(loopback, "key2");
+			check("new key asks again", requestCount == 2);
+			check("refusal reported", "Not authorized.".equals(userInfo.error));
+			check("refusal has no ports", userInfo.ports.isEmpty());
+			checker.getUserInfo(loopback, "key2");
+			check("refusal not cached", requestCount == 3);
+
+			reply = "<html><body>Maintenance</body></html>";
+			userInfo = checker.getUserInfo(loopback, "key3");
+			check("non-json reply reported", userInfo.error != null
+					&& userInfo.error.contains("Maintenance"));
+
+			reply = REPLY_OK;
+			userInfo = checker.getUserInfo(loopback, "key3");
+			check("recovers after a bad reply", requestCount == 5
+					&& userInfo.error == null && userInfo.ports.contains(51234));
+		} finally {
+			checker.destroy();
+			server.stop(0);
+		}
+		System.out.println("OK");
+	}
+
+	private static void check(String what, boolean ok) {
+		if (!ok) {
+			System.err.println("FAILED: " + what + " (requests " + requestCount
+					+ ", API-KEY " + lastAPIKey + ", query " + lastQuery + ")");
+			System.exit(1);
+		}
+	}
+
+	private static PluginConfig createConfig(final String url) {
+		return (PluginConfig) Proxy.newProxyInstance(
+				PluginConfig.class.getClassLoader(), new Class<?>[] {
+					PluginConfig.class
+				}, (proxy, method, args) -> {
+					Class<?> type = method.getReturnType();
+					if (type == String.class) {
+						if (args != null
+								&& Checker_AirVPN.CONFIG_AIRVPN_API_URL.equals(args[0])) {
+							return url;
+						}
+						return args != null && args.length > 1 ? args[1] : "";
+					}
+					if (type == boolean.class) {
+						return false;
+					}
+					if (type == int.class) {
+						return 0;
+					}
+					return null;
+				});
+	}
+}